@@ -58,7 +58,7 @@ public class CheckersEnvironment{
     }
     public Board randomReset(int n){
         this.state = new Board();
-        this.state.board = new Piece[Board.BOARD_SIZE][Board.BOARD_SIZE];
+        this.state.clear();
 
         Random random = new Random();
         int tempN = n;
@@ -106,44 +106,13 @@ public class CheckersEnvironment{
 
     public double rewardFunc(){
         double reward = ( HIGHEST_REWARD +LOWEST_REWARD )/2;
-        int[] myCurrPieces = new int[2]; // Pawns on index 0 and kings on index 1
-        int[] oppCurrPieces = new int[2];
-        int[] myPrevPieces = new int[2];
-        int[] oppPrevPieces = new int[2];
-
-        for (int i = 0; i < Board.BOARD_SIZE; i++) {
-            for (int j = (1 - i % 2); j < Board.BOARD_SIZE; j += 2) {
-                Piece currP = this.state.getPiece(i,j);
-                Piece prevP = this.state.prevBoard[i][j];
-
-                if(currP!=null){
-                    if(currP.owner == player1.myTurn){
-                        if(currP instanceof Pawn)
-                            oppCurrPieces[0]++;
-                        else
-                            oppCurrPieces[1]++;
-                    }else{
-                        if(currP instanceof Pawn)
-                            myCurrPieces[0]++;
-                        else
-                            myCurrPieces[1]++;
-                    }
-                }
-                if(prevP!=null){
-                    if(prevP.owner == player1.myTurn){
-                        if(prevP instanceof Pawn)
-                            oppPrevPieces[0]++;
-                        else
-                            oppPrevPieces[1]++;
-                    }else{
-                        if(prevP instanceof Pawn)
-                            myPrevPieces[0]++;
-                        else
-                            myPrevPieces[1]++;
-                    }
-                }
-            }
-        }
+        Piece.PieceOwner opp = player1.myTurn;
+        Piece.PieceOwner me = (opp== Piece.PieceOwner.PLAYER1)? Piece.PieceOwner.PLAYER2: Piece.PieceOwner.PLAYER1;
+        // Pawns on index 0 and kings on index 1
+        int[] myCurrPieces = {this.state.getPawnCount(me), this.state.getKingCount(me)};
+        int[] oppCurrPieces = {this.state.getPawnCount(opp), this.state.getKingCount(opp)};
+        int[] myPrevPieces = {this.state.getPrevPawnCount(me), this.state.getPrevKingCount(me)};
+        int[] oppPrevPieces = {this.state.getPrevPawnCount(opp), this.state.getPrevKingCount(opp)};
 
         if(oppCurrPieces[0]-oppPrevPieces[0]<0) // when we jump over opponent's pawn
             reward= reward + reward*0.20*(oppPrevPieces[0]-oppCurrPieces[0]);
@@ -3,7 +3,6 @@ package com.checkers.controller;
 import com.checkers.models.Board;
 import com.checkers.models.exceptions.InValidMove;
 import com.checkers.models.move.Move;
-import com.checkers.models.piece.Pawn;
 import com.checkers.models.piece.Piece;
 import com.checkers.models.players.Player;
 import com.checkers.models.players.ReinforcedMinMax;
@@ -84,29 +83,10 @@ public Player playWithoutDebugging() throws InValidMove, CloneNotSupportedExcept
 
 }
     private int evaluateBoard(){
-        int player1Value =0;
-        int player2Value=0;
-
-        for(int r=0;r<board.board.length;r++){
-            for(int c=(1-r%2);c<board.board.length;c+=2){
-                Piece piece = board.board[r][c];
-
-                if(piece!=null){
-                    if(piece.owner== Piece.PieceOwner.PLAYER1){
-                        if(piece instanceof Pawn)
-                            player1Value+=1;
-                        else
-                            player1Value+=2;
-                    }else{
-                        if(piece instanceof Pawn)
-                            player2Value+=1;
-                        else
-                            player2Value+=2;
-                    }
-                }
-            }
+        // pawns are worth one and kings two
+        int player1Value = board.getPawnCount(Piece.PieceOwner.PLAYER1) + 2*board.getKingCount(Piece.PieceOwner.PLAYER1);
+        int player2Value = board.getPawnCount(Piece.PieceOwner.PLAYER2) + 2*board.getKingCount(Piece.PieceOwner.PLAYER2);
 
-        }
         if(player1Value == player2Value)
             return 0;
         return (player1Value> player2Value)? 1: 2;
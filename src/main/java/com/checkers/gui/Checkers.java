@@ -1,6 +1,7 @@
 package com.checkers.gui;
 
 import com.checkers.models.Board;
+import com.checkers.models.book.OpeningBook;
 import com.checkers.models.exceptions.InValidMove;
 import com.checkers.models.move.Move;
 import com.checkers.models.move.Position;
@@ -46,6 +47,8 @@ public class Checkers {
     private Position origin;
     private boolean myTurn = true;
     Player player;
+    private final Object ponderLock = new Object();
+    private int ponderGeneration; // bumped whenever the position the AI ponders on is left, guarded by ponderLock
     public Config config;
     public Stage mainStage;
     public boolean highlightOnClick = true;
@@ -97,6 +100,8 @@ public class Checkers {
         if (player instanceof RemotePlayer) {
             this.myTurn = this.player.myTurn == Piece.PieceOwner.PLAYER1;
         }
+        if (player instanceof InstrumentedPlayer instrumented) // look into the AI with JConsole
+            instrumented.getStatistics().register(player.getName());
         this.board = new Board();
         this.boardSquares = new BoardSquare[Board.BOARD_SIZE][Board.BOARD_SIZE];
 
@@ -251,6 +256,7 @@ public class Checkers {
         undoButton.setPadding(Insets.EMPTY);
         undoButton.setTooltip(new Tooltip("Undo last move"));
         undoButton.setOnAction((e) -> {
+            stopPondering();
             if (!board.undo()) return;
             updateBoard();
             if (this.player == null) return;
@@ -273,6 +279,7 @@ public class Checkers {
         imageView.setFitWidth(IMAGE_SIZE);
         refreshButton.setBackground(Background.EMPTY);
         refreshButton.setOnMouseClicked((e) -> {
+            stopPondering();
             board.resetBoard();
             updateBoard();
             myTurn = true;
@@ -287,6 +294,7 @@ public class Checkers {
         redoButton.setBackground(Background.EMPTY);
 
         redoButton.setOnMouseClicked((e) -> {
+            stopPondering();
             if (!board.redo()) return;
             updateBoard();
             if (this.player == null) return;
@@ -338,6 +346,8 @@ public class Checkers {
      * to reconfigure game parameters
      */
     private void gotoHome() {
+        stopPondering();
+        if (player instanceof InstrumentedPlayer instrumented) instrumented.getStatistics().unregister();
         mainStage.close();
         FXMLLoader fxmlLoader = new FXMLLoader(com.checkers.gui.ChoosePlayer.class.getResource("/choose-player.fxml"));
         try {
@@ -363,8 +373,16 @@ public class Checkers {
         switch (level) {
             case EASY -> player = new RandomPlayer("Random Player", Piece.PieceOwner.PLAYER2);
             case MEDIUM -> player = new MinMaxAIPlayer("Mini Max", Piece.PieceOwner.PLAYER2);
-            case HARD -> player = new AlphaBetaMinMaxAIPlayer("Alpha Beta", Piece.PieceOwner.PLAYER2);
-            default -> player = new MCTSPlayer("Monte Carlo", Piece.PieceOwner.PLAYER2);
+            case HARD -> {
+                AlphaBetaMinMaxAIPlayer alphaBeta = new AlphaBetaMinMaxAIPlayer("Alpha Beta", Piece.PieceOwner.PLAYER2);
+                alphaBeta.setOpeningBook(OpeningBook.openDefault());
+                player = alphaBeta;
+            }
+            default -> {
+                MCTSPlayer mcts = new MCTSPlayer("Monte Carlo", Piece.PieceOwner.PLAYER2);
+                mcts.setOpeningBook(OpeningBook.openDefault());
+                player = mcts;
+            }
         }
 
         return player;
@@ -497,6 +515,10 @@ public class Checkers {
      * Method aiMove lets an AI agent make a move based on its algorithms and heuristics
      */
     public void aiMove() {
+        int generation;
+        synchronized (ponderLock) {
+            generation = ponderGeneration;
+        }
         Task<Void> task = new Task<>() {
             @Override
             protected Void call() throws Exception {
@@ -504,6 +526,12 @@ public class Checkers {
                 Move aiMove = player.makeMove(new Board(board));
                 board.makeMove(aiMove);
                 Platform.runLater(() -> updateBoard());
+                if (player instanceof PonderingPlayer ponderer) { // think while the user does
+                    synchronized (ponderLock) {
+                        if (generation == ponderGeneration) // unless the game was left or taken back meanwhile
+                            ponderer.startPondering(new Board(board));
+                    }
+                }
                 return null;
             }
 
@@ -520,6 +548,17 @@ public class Checkers {
 
     }
 
+    /**
+     * Method stopPondering stops the AI from thinking on the user's time, when the position it thinks about is left,
+     * and keeps an AI move still being made from starting to ponder
+     */
+    private void stopPondering() {
+        synchronized (ponderLock) {
+            ponderGeneration++;
+            if (player instanceof PonderingPlayer ponderer) ponderer.stopPondering();
+        }
+    }
+
     /**
      * Method setHighlight makes squares on a board highlighted
      *
@@ -1,5 +1,10 @@
 package com.checkers.models;
 
+import com.checkers.models.engine.BitBoard;
+import com.checkers.models.engine.MoveCodec;
+import com.checkers.models.engine.MoveGenerator;
+import com.checkers.models.engine.PieceSquare;
+import com.checkers.models.engine.Zobrist;
 import com.checkers.models.exceptions.InValidMove;
 import com.checkers.models.move.Jump;
 import com.checkers.models.move.Move;
@@ -12,13 +17,45 @@ import javafx.beans.property.SimpleIntegerProperty;
 
 import java.util.ArrayList;
 
+/**
+ * The state of a game of checkers. Pieces are kept in four 32-bit masks (pawns and kings of
+ * each player, one bit per dark square, see {@link BitBoard}) so copying a board is cheap.
+ * <code>getPiece</code>, <code>setPiece</code> and <code>getBoard</code> give a Piece based view of those masks.
+ * Piece counts and back row occupancy are read off the masks, and a piece-square score per player
+ * (see {@link PieceSquare}) is kept up to date as moves are made, so evaluating a position takes constant time.
+ */
 public class Board {
     public static final int BOARD_SIZE = 8;
 
-    public Piece[][] board;
-    public Piece[][] prevBoard;
-    private Piece[][] futureBoard;
+    private static final int PLAYER1_KING_ROW = BitBoard.rowMask(0);
+    private static final int PLAYER2_KING_ROW = BitBoard.rowMask(BOARD_SIZE - 1);
+    private static final int PLAYER1_BACK_ROW = PLAYER2_KING_ROW;
+    private static final int PLAYER2_BACK_ROW = PLAYER1_KING_ROW;
+    // Layout of the value returned by doMove: the encoded move, a promotion flag and
+    // one bit per captured piece (in ascending square order) telling whether it was a king
+    private static final long MOVE_BITS = (1L << 42) - 1;
+    private static final long PROMOTED = 1L << 42;
+    private static final int CAPTURED_KINGS_SHIFT = 43;
+    private static final int UNKNOWN = -1;
+
+    private int player1Pawns;
+    private int player1Kings;
+    private int player2Pawns;
+    private int player2Kings;
+    private long hash;
+    private int player1Positional;
+    private int player2Positional;
+    private int[] prevBoard;   // masks just before the last move
+    private int[] futureBoard; // masks just before the last undo
+    private long prevHash;
+    private long futureHash;
     private Piece.PieceOwner turn;
+    // legal moves of the player in turn and the result of isGameOver, worked out when first asked for
+    // and dropped whenever the position changes
+    private long[] legalMoves;
+    private int legalMoveCount = UNKNOWN;
+    private boolean gameOverKnown;
+    private Piece.PieceOwner winner;
     public int prevPlayer1Score;
     public int prevPlayer2Score;
 
@@ -30,79 +67,244 @@ public class Board {
 
 
     public Board() {
-        this.board = new Piece[BOARD_SIZE][BOARD_SIZE];
         this.prevBoard = null;
         this.turn = Piece.PieceOwner.PLAYER1;
         this.resetBoard();
     }
 
     public Board(Board b) {
-        this.prevBoard = cloneBoardArray(b.prevBoard);
-        this.board = cloneBoardArray(b.board);
+        this.prevBoard = (b.prevBoard == null) ? null : b.prevBoard.clone();
+        this.player1Pawns = b.player1Pawns;
+        this.player1Kings = b.player1Kings;
+        this.player2Pawns = b.player2Pawns;
+        this.player2Kings = b.player2Kings;
         this.turn = b.turn;
+        this.hash = b.hash;
+        this.player1Positional = b.player1Positional;
+        this.player2Positional = b.player2Positional;
+        this.prevHash = b.prevHash;
+        this.gameOverKnown = b.gameOverKnown;
+        this.winner = b.winner;
     }
 
+    /**
+     * Sets this board to the position of another one, without its scores or undo/redo history.
+     * Allocates nothing, for searches that keep reusing the same board.
+     */
+    public void copyPosition(Board b) {
+        this.player1Pawns = b.player1Pawns;
+        this.player1Kings = b.player1Kings;
+        this.player2Pawns = b.player2Pawns;
+        this.player2Kings = b.player2Kings;
+        this.turn = b.turn;
+        this.hash = b.hash;
+        this.player1Positional = b.player1Positional;
+        this.player2Positional = b.player2Positional;
+        this.legalMoveCount = UNKNOWN;
+        this.gameOverKnown = b.gameOverKnown;
+        this.winner = b.winner;
+    }
+
+    /**
+     * Builds a two dimensional view of the board. Changes made to the returned array
+     * are not reflected on the board.
+     *
+     * @return a new array holding a Piece for every occupied square
+     */
     public Piece[][] getBoard() {
-        return this.cloneBoardArray(this.board);
+        Piece[][] view = new Piece[BOARD_SIZE][BOARD_SIZE];
+        for (int s = 0; s < BitBoard.SQUARES; s++)
+            view[BitBoard.row(s)][BitBoard.column(s)] = pieceAt(s, player1Pawns, player1Kings, player2Pawns, player2Kings);
+        return view;
     }
 
     public void setPiece(Position pos, Piece p) {
-        this.board[pos.getRow()][pos.getColumn()] = p;
+        this.setPiece(pos.getRow(), pos.getColumn(), p);
     }
 
     public void setPiece(int r, int c, Piece p) {
-        this.board[r][c] = p;
+        int square = BitBoard.square(r, c);
+        if (square < 0) return; // light squares can't hold a piece
+
+        int bit = BitBoard.bit(square);
+        this.invalidate();
+        hash ^= pieceKey(square);
+        this.addPositional(square, -1);
+        player1Pawns &= ~bit;
+        player1Kings &= ~bit;
+        player2Pawns &= ~bit;
+        player2Kings &= ~bit;
+        if (p == null) return;
+
+        boolean king = p instanceof King;
+        if (p.owner == Piece.PieceOwner.PLAYER1) {
+            if (king) player1Kings |= bit;
+            else player1Pawns |= bit;
+        } else {
+            if (king) player2Kings |= bit;
+            else player2Pawns |= bit;
+        }
+        hash ^= pieceKey(square);
+        this.addPositional(square, 1);
+    }
+
+    private void addPositional(int square, int sign) {
+        int bit = BitBoard.bit(square);
+        if ((player1Pawns & bit) != 0) player1Positional += sign * PieceSquare.VALUE[Zobrist.PLAYER1_PAWN][square];
+        else if ((player1Kings & bit) != 0) player1Positional += sign * PieceSquare.VALUE[Zobrist.PLAYER1_KING][square];
+        else if ((player2Pawns & bit) != 0) player2Positional += sign * PieceSquare.VALUE[Zobrist.PLAYER2_PAWN][square];
+        else if ((player2Kings & bit) != 0) player2Positional += sign * PieceSquare.VALUE[Zobrist.PLAYER2_KING][square];
+    }
+
+    private long pieceKey(int square) {
+        int bit = BitBoard.bit(square);
+        if ((player1Pawns & bit) != 0) return Zobrist.PIECE[Zobrist.PLAYER1_PAWN][square];
+        if ((player1Kings & bit) != 0) return Zobrist.PIECE[Zobrist.PLAYER1_KING][square];
+        if ((player2Pawns & bit) != 0) return Zobrist.PIECE[Zobrist.PLAYER2_PAWN][square];
+        if ((player2Kings & bit) != 0) return Zobrist.PIECE[Zobrist.PLAYER2_KING][square];
+        return 0;
+    }
+
+    /**
+     * Returns the mask of the pawns a player has on the board.
+     *
+     * @param owner - the player whose pawns are required
+     * @return an int with a bit set for every square holding one of the player's pawns
+     */
+    public int getPawns(Piece.PieceOwner owner) {
+        return (owner == Piece.PieceOwner.PLAYER1) ? player1Pawns : player2Pawns;
+    }
+
+    /**
+     * Returns the mask of the kings a player has on the board.
+     *
+     * @param owner - the player whose kings are required
+     * @return an int with a bit set for every square holding one of the player's kings
+     */
+    public int getKings(Piece.PieceOwner owner) {
+        return (owner == Piece.PieceOwner.PLAYER1) ? player1Kings : player2Kings;
+    }
+
+    public int getPawnCount(Piece.PieceOwner owner) {
+        return Integer.bitCount(getPawns(owner));
+    }
+
+    public int getKingCount(Piece.PieceOwner owner) {
+        return Integer.bitCount(getKings(owner));
+    }
+
+    /**
+     * Returns the number of pieces a player still has on the row it started from.
+     */
+    public int getBackRowCount(Piece.PieceOwner owner) {
+        return Integer.bitCount(getPieces(owner) & ((owner == Piece.PieceOwner.PLAYER1) ? PLAYER1_BACK_ROW : PLAYER2_BACK_ROW));
+    }
+
+    /**
+     * Returns the number of rows a player's pawns have moved towards their crowning row, all together.
+     */
+    public int getAdvancement(Piece.PieceOwner owner) {
+        return PieceSquare.advancement((owner == Piece.PieceOwner.PLAYER1) ? player1Positional : player2Positional);
+    }
+
+    /**
+     * Returns the number of steps a player's pieces stand away from the nearest edges of the board, all together.
+     */
+    public int getCentralization(Piece.PieceOwner owner) {
+        return PieceSquare.center((owner == Piece.PieceOwner.PLAYER1) ? player1Positional : player2Positional);
+    }
+
+    /**
+     * Returns the number of pawns a player had just before the last move, or 0 if no move has been made yet.
+     */
+    public int getPrevPawnCount(Piece.PieceOwner owner) {
+        if (prevBoard == null) return 0;
+        return Integer.bitCount(prevBoard[(owner == Piece.PieceOwner.PLAYER1) ? 0 : 2]);
+    }
+
+    /**
+     * Returns the number of kings a player had just before the last move, or 0 if no move has been made yet.
+     */
+    public int getPrevKingCount(Piece.PieceOwner owner) {
+        if (prevBoard == null) return 0;
+        return Integer.bitCount(prevBoard[(owner == Piece.PieceOwner.PLAYER1) ? 1 : 3]);
+    }
+
+    /**
+     * Returns the mask of all the pieces a player has on the board.
+     */
+    public int getPieces(Piece.PieceOwner owner) {
+        return getPawns(owner) | getKings(owner);
+    }
+
+    /**
+     * Returns the mask of every occupied square.
+     */
+    public int getOccupied() {
+        return player1Pawns | player1Kings | player2Pawns | player2Kings;
+    }
+
+    /**
+     * Removes every piece from the board.
+     */
+    public void clear() {
+        player1Pawns = player1Kings = player2Pawns = player2Kings = 0;
+        this.rehash();
+    }
+
+    private void rehash() {
+        hash = Zobrist.hash(player1Pawns, player1Kings, player2Pawns, player2Kings, turn == Piece.PieceOwner.PLAYER2);
+        this.recountPositional();
+        this.invalidate();
+    }
+
+    private void recountPositional() {
+        player1Positional = PieceSquare.sum(Zobrist.PLAYER1_PAWN, player1Pawns) + PieceSquare.sum(Zobrist.PLAYER1_KING, player1Kings);
+        player2Positional = PieceSquare.sum(Zobrist.PLAYER2_PAWN, player2Pawns) + PieceSquare.sum(Zobrist.PLAYER2_KING, player2Kings);
+    }
+
+    /**
+     * Forgets the legal moves and game over status of the old position.
+     */
+    private void invalidate() {
+        legalMoveCount = UNKNOWN;
+        gameOverKnown = false;
     }
 
     /**
      * Moves a piece on the board
-     * Move a piece to a new square on the board, and makes
-     * its previous spot null. We also check if the piece is at
-     * an edge row and make the piece a king if so. If the move is a jump,
-     * we iterate through the toBeRemoved ArrayList and make sure all the pieces
-     * in there are null so that they are removed.
+     * Checks the move is one of the legal moves of the player in turn and makes it with <code>doMove</code>,
+     * which moves the piece, crowns it if it reaches the far row and removes the jumped pieces.
+     * The state before the move is kept for <code>undo</code> and the player's score is updated.
      */
     public Move makeMove(Move mv) throws InValidMove {
         if (mv == null) throw new InValidMove("Move object can't be null.");
 
-        if (this.getPiece(mv.getOrigin()).owner != this.turn) throw new InValidMove("Not your turn.");
+        Piece piece = this.getPiece(mv.getOrigin());
+        if (piece == null) throw new InValidMove("No piece to move.");
+        if (piece.owner != this.turn) throw new InValidMove("Not your turn.");
 
-        for (Move move : this.reachablePositionsByPlayer(this.getPiece(mv.getOrigin()).owner)) {
+        long[] moves = this.legalMoves();
+        int count = legalMoveCount;
+        for (int i = 0; i < count; i++) {
+            Move move = MoveCodec.toMove(moves[i]);
             if (mv.equals(move)) {
-                prevBoard = cloneBoardArray(board);
+                prevBoard = masks();
+                prevHash = hash;
                 prevPlayer2Score = this.getPlayer2Score();
                 prevPlayer1Score = this.getPlayer1Score();
-                int initR = move.getOrigin().getRow();
-                int initC = move.getOrigin().getColumn();
-                int newR = move.getDestination().getRow();
-                int newC = move.getDestination().getColumn();
-
-                // Put the piece onto its new destination
-                board[newR][newC] = board[initR][initC].clone();
-                board[initR][initC] = null;  // Make the previous position empty
 
-                if (newR == 0 && this.turn == Piece.PieceOwner.PLAYER1) board[newR][newC] = new King(this.turn);
-
-                if (newR == BOARD_SIZE - 1 && this.turn == Piece.PieceOwner.PLAYER2)
-                    board[newR][newC] = new King(this.turn);
+                long undoInfo = this.doMove(moves[i]);
 
                 if (move instanceof Jump) {
-                    int score = 0;
-                    for (Position remove : ((Jump) move).toBeRemoved) {
-                        board[remove.getRow()][remove.getColumn()] = null;  // Remove all piece that are jumped over
-
-                        if (this.getPiece(remove) instanceof King) score += 2;
-                        else score++;
-
-                    }
+                    // pawns are worth one point and kings two
+                    int score = Integer.bitCount(MoveCodec.captured(moves[i])) + Long.bitCount(undoInfo >>> CAPTURED_KINGS_SHIFT);
 
-                    if (this.turn == Piece.PieceOwner.PLAYER1)
+                    if (piece.owner == Piece.PieceOwner.PLAYER1)
                         this.player1Score.setValue(this.player1Score.getValue() + score);
                     else this.player2Score.setValue(this.player2Score.getValue() + score);
 
                 }
-
-                this.turn = (this.turn == Piece.PieceOwner.PLAYER1) ? Piece.PieceOwner.PLAYER2 : Piece.PieceOwner.PLAYER1;
                 return move;
             }
         }
@@ -110,37 +312,252 @@ public class Board {
 
     }
 
+    /**
+     * Returns the moves the piece at a position can make. If the piece can jump only its jumps are returned.
+     *
+     * @param position - the position of the piece
+     * @return the moves of the piece, or null if the square is empty
+     */
     public ArrayList<Move> reachablePositions(Position position) {
         if (position == null || this.getPiece(position) == null) return null;
-        return this.getPiece(position).generateMoves(new Board(this), position);
+
+        Piece.PieceOwner owner = this.getPiece(position).owner;
+        long[] moves = new long[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generate(owner, BitBoard.square(position.getRow(), position.getColumn()),
+                this.getPawns(owner), this.getKings(owner), this.getPieces(opponent(owner)), moves);
+        return toMoveList(moves, count);
     }
 
     /**
-     * Returns all possible move a player can take. Iteratively calls <code>reachablePositions</code> to get
-     * the moves a piece can make and adds to an ArrayList. If there are Jump type moves, those are the only moves returned.
+     * Returns all possible move a player can take. If there are Jump type moves, those are the only moves returned.
      *
      * @param owner - the player we want to generate the list of moves for
      * @return the possible moves for a player
      */
     public ArrayList<Move> reachablePositionsByPlayer(Piece.PieceOwner owner) {
-        ArrayList<Move> jumps = new ArrayList<>();
-        ArrayList<Move> moves = new ArrayList<>();
+        long[] moves = new long[MoveGenerator.MAX_MOVES];
+        return toMoveList(moves, this.generateMoves(owner, moves));
+    }
 
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            for (int j = (1 - i % 2); j < BOARD_SIZE; j += 2) {
-                Piece piece = this.getPiece(i, j);
-                if (piece != null && piece.owner == owner) {
-                    ArrayList<Move> tempMoves = this.reachablePositions(new Position(i, j));
+    private static ArrayList<Move> toMoveList(long[] moves, int count) {
+        ArrayList<Move> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            list.add(MoveCodec.toMove(moves[i]));
+        return list;
+    }
+
+    /**
+     * Returns the legal moves of the player in turn, generated the first time they are asked for in a position.
+     * Only the first <code>legalMoveCount</code> entries are moves, and the array must not be changed.
+     */
+    private long[] legalMoves() {
+        if (legalMoveCount == UNKNOWN) {
+            if (legalMoves == null) legalMoves = new long[MoveGenerator.MAX_MOVES];
+            legalMoveCount = this.generateMoves(this.turn, legalMoves);
+        }
+        return legalMoves;
+    }
+
+    /**
+     * Tells whether the player in turn can move, stopping at the first legal move found.
+     */
+    public boolean hasMoves() {
+        return this.hasMoves(this.turn);
+    }
 
-                    if (tempMoves.size() == 0) continue;
+    /**
+     * Tells whether a player can move, stopping at the first legal move found.
+     */
+    public boolean hasMoves(Piece.PieceOwner owner) {
+        if (owner == this.turn && legalMoveCount != UNKNOWN) return legalMoveCount != 0;
+        return MoveGenerator.hasMove(owner, this.getPawns(owner), this.getKings(owner), this.getPieces(opponent(owner)));
+    }
+
+    /**
+     * Writes the encoded moves (see {@link MoveCodec}) of the player in turn into a caller owned array.
+     * Unlike <code>reachablePositionsByPlayer</code> this allocates nothing.
+     *
+     * @param moves - the array the moves are written to, starting at index 0
+     * @return the number of moves written
+     */
+    public int generateMoves(long[] moves) {
+        return this.generateMoves(this.turn, moves);
+    }
+
+    /**
+     * Writes the encoded moves of a player into a caller owned array.
+     *
+     * @param owner - the player we want to generate the moves for
+     * @param moves - the array the moves are written to, starting at index 0
+     * @return the number of moves written
+     */
+    public int generateMoves(Piece.PieceOwner owner, long[] moves) {
+        return MoveGenerator.generate(owner, this.getPawns(owner), this.getKings(owner), this.getPieces(opponent(owner)), moves);
+    }
+
+    /**
+     * Makes an encoded move in place without checking it is legal, for use by searches that walk a single board.
+     * Scores and the undo/redo history are left untouched.
+     *
+     * @param move - an encoded move generated for the player in turn
+     * @return the information <code>undoMove</code> needs to take the move back
+     */
+    public long doMove(long move) {
+        int fromSquare = MoveCodec.from(move);
+        int toSquare = MoveCodec.to(move);
+        int from = BitBoard.bit(fromSquare);
+        int to = BitBoard.bit(toSquare);
+        int captured = MoveCodec.captured(move);
+        boolean player1 = this.turn == Piece.PieceOwner.PLAYER1;
+        int pawns = player1 ? player1Pawns : player2Pawns;
+        int kings = player1 ? player1Kings : player2Kings;
+        int pawnKind = player1 ? Zobrist.PLAYER1_PAWN : Zobrist.PLAYER2_PAWN;
+        int kingKind = player1 ? Zobrist.PLAYER1_KING : Zobrist.PLAYER2_KING;
+
+        boolean promoted = false;
+        int positional;
+        if ((kings & from) != 0) {
+            kings = (kings & ~from) | to;
+            hash ^= Zobrist.PIECE[kingKind][fromSquare] ^ Zobrist.PIECE[kingKind][toSquare];
+            positional = PieceSquare.VALUE[kingKind][toSquare] - PieceSquare.VALUE[kingKind][fromSquare];
+        } else if ((to & (player1 ? PLAYER1_KING_ROW : PLAYER2_KING_ROW)) != 0) {
+            pawns &= ~from;
+            kings |= to;
+            promoted = true;
+            hash ^= Zobrist.PIECE[pawnKind][fromSquare] ^ Zobrist.PIECE[kingKind][toSquare];
+            positional = PieceSquare.VALUE[kingKind][toSquare] - PieceSquare.VALUE[pawnKind][fromSquare];
+        } else {
+            pawns = (pawns & ~from) | to;
+            hash ^= Zobrist.PIECE[pawnKind][fromSquare] ^ Zobrist.PIECE[pawnKind][toSquare];
+            positional = PieceSquare.VALUE[pawnKind][toSquare] - PieceSquare.VALUE[pawnKind][fromSquare];
+        }
 
-                    else if (tempMoves.get(0) instanceof Jump) jumps.addAll(tempMoves);
-                    else moves.addAll(tempMoves);
+        int capturedKings = 0;
+        int capturedPositional = 0;
+        if (captured != 0) {
+            int enemyKings = player1 ? player2Kings : player1Kings;
+            int enemyPawnKind = player1 ? Zobrist.PLAYER2_PAWN : Zobrist.PLAYER1_PAWN;
+            int enemyKingKind = player1 ? Zobrist.PLAYER2_KING : Zobrist.PLAYER1_KING;
+            int i = 0;
+            for (int c = captured; c != 0; c &= c - 1, i++) {
+                int square = Integer.numberOfTrailingZeros(c);
+                if ((enemyKings & c & -c) != 0) {
+                    capturedKings |= 1 << i;
+                    hash ^= Zobrist.PIECE[enemyKingKind][square];
+                    capturedPositional += PieceSquare.VALUE[enemyKingKind][square];
+                } else {
+                    hash ^= Zobrist.PIECE[enemyPawnKind][square];
+                    capturedPositional += PieceSquare.VALUE[enemyPawnKind][square];
                 }
             }
+            if (player1) {
+                player2Pawns &= ~captured;
+                player2Kings &= ~captured;
+            } else {
+                player1Pawns &= ~captured;
+                player1Kings &= ~captured;
+            }
         }
-        if (jumps.size() != 0) return jumps;
-        return moves;
+
+        if (player1) {
+            player1Pawns = pawns;
+            player1Kings = kings;
+            player1Positional += positional;
+            player2Positional -= capturedPositional;
+        } else {
+            player2Pawns = pawns;
+            player2Kings = kings;
+            player2Positional += positional;
+            player1Positional -= capturedPositional;
+        }
+        this.turn = opponent(this.turn);
+        hash ^= Zobrist.SIDE;
+        this.invalidate();
+
+        return (move & MOVE_BITS) | (promoted ? PROMOTED : 0) | ((long) capturedKings << CAPTURED_KINGS_SHIFT);
+    }
+
+    /**
+     * Takes back a move made with <code>doMove</code>, restoring the moved piece, any promotion,
+     * the captured pieces and the turn. Moves have to be undone in the reverse order they were made.
+     *
+     * @param undoInfo - the value returned by <code>doMove</code>
+     */
+    public void undoMove(long undoInfo) {
+        this.turn = opponent(this.turn);
+        hash ^= Zobrist.SIDE;
+        this.invalidate();
+        int fromSquare = MoveCodec.from(undoInfo);
+        int toSquare = MoveCodec.to(undoInfo);
+        int from = BitBoard.bit(fromSquare);
+        int to = BitBoard.bit(toSquare);
+        int captured = MoveCodec.captured(undoInfo & MOVE_BITS);
+        boolean player1 = this.turn == Piece.PieceOwner.PLAYER1;
+        int pawns = player1 ? player1Pawns : player2Pawns;
+        int kings = player1 ? player1Kings : player2Kings;
+        int pawnKind = player1 ? Zobrist.PLAYER1_PAWN : Zobrist.PLAYER2_PAWN;
+        int kingKind = player1 ? Zobrist.PLAYER1_KING : Zobrist.PLAYER2_KING;
+
+        int positional;
+        if ((undoInfo & PROMOTED) != 0) {
+            kings &= ~to;
+            pawns |= from;
+            hash ^= Zobrist.PIECE[pawnKind][fromSquare] ^ Zobrist.PIECE[kingKind][toSquare];
+            positional = PieceSquare.VALUE[kingKind][toSquare] - PieceSquare.VALUE[pawnKind][fromSquare];
+        } else if ((kings & to) != 0) {
+            kings = (kings & ~to) | from;
+            hash ^= Zobrist.PIECE[kingKind][fromSquare] ^ Zobrist.PIECE[kingKind][toSquare];
+            positional = PieceSquare.VALUE[kingKind][toSquare] - PieceSquare.VALUE[kingKind][fromSquare];
+        } else {
+            pawns = (pawns & ~to) | from;
+            hash ^= Zobrist.PIECE[pawnKind][fromSquare] ^ Zobrist.PIECE[pawnKind][toSquare];
+            positional = PieceSquare.VALUE[pawnKind][toSquare] - PieceSquare.VALUE[pawnKind][fromSquare];
+        }
+
+        if (player1) {
+            player1Pawns = pawns;
+            player1Kings = kings;
+            player1Positional -= positional;
+        } else {
+            player2Pawns = pawns;
+            player2Kings = kings;
+            player2Positional -= positional;
+        }
+
+        if (captured != 0) {
+            int capturedKings = (int) (undoInfo >>> CAPTURED_KINGS_SHIFT);
+            int enemyPawns = 0, enemyKings = 0;
+            int i = 0;
+            for (int c = captured; c != 0; c &= c - 1, i++) {
+                if ((capturedKings & (1 << i)) != 0) enemyKings |= c & -c;
+                else enemyPawns |= c & -c;
+            }
+            if (player1) {
+                player2Pawns |= enemyPawns;
+                player2Kings |= enemyKings;
+                hash ^= Zobrist.hash(Zobrist.PLAYER2_PAWN, enemyPawns) ^ Zobrist.hash(Zobrist.PLAYER2_KING, enemyKings);
+                player2Positional += PieceSquare.sum(Zobrist.PLAYER2_PAWN, enemyPawns) + PieceSquare.sum(Zobrist.PLAYER2_KING, enemyKings);
+            } else {
+                player1Pawns |= enemyPawns;
+                player1Kings |= enemyKings;
+                hash ^= Zobrist.hash(Zobrist.PLAYER1_PAWN, enemyPawns) ^ Zobrist.hash(Zobrist.PLAYER1_KING, enemyKings);
+                player1Positional += PieceSquare.sum(Zobrist.PLAYER1_PAWN, enemyPawns) + PieceSquare.sum(Zobrist.PLAYER1_KING, enemyKings);
+            }
+        }
+    }
+
+    /**
+     * Returns the Zobrist hash of the position (see {@link Zobrist}), covering the pieces and the player in turn.
+     * It is kept up to date as moves are made and taken back, so reading it is O(1).
+     *
+     * @return a 64-bit key of the position
+     */
+    public long hash() {
+        return this.hash;
+    }
+
+    private static Piece.PieceOwner opponent(Piece.PieceOwner owner) {
+        return (owner == Piece.PieceOwner.PLAYER1) ? Piece.PieceOwner.PLAYER2 : Piece.PieceOwner.PLAYER1;
     }
 
 
@@ -150,7 +567,7 @@ public class Board {
      * @return ArrayList of moves
      */
     public ArrayList<Move> reachablePositionsByPlayer() {
-        return this.reachablePositionsByPlayer(this.turn);
+        return toMoveList(this.legalMoves(), legalMoveCount);
     }
 
     /**
@@ -164,6 +581,10 @@ public class Board {
     }
 
     public void setTurn(Piece.PieceOwner owner) {
+        if (owner != this.turn) {
+            hash ^= Zobrist.SIDE;
+            legalMoveCount = UNKNOWN;
+        }
         this.turn = owner;
     }
 
@@ -187,23 +608,16 @@ public class Board {
 
     /**
      * Resets the board to its original state.
-     * We iterate through the board skipping a square. The first 3 rows
-     * are for player 2 and the last three row are for player 1 initially.
+     * The first 3 rows are for player 2 and the last three row are for player 1 initially.
      * The rows in between are empty.
      */
     public void resetBoard() {
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            for (int j = (1 - i % 2); j < BOARD_SIZE; j += 2) { // Makes sure the Pieces are placed on squares where i+j is odd
-                if (i <= 2) {  //place player two's pawns in their starting place
-                    this.board[i][j] = new Pawn(Piece.PieceOwner.PLAYER2);
-                } else if (i <= 4) { // makes the middle two rows empty
-                    this.board[i][j] = null;
-                } else { //place player one's pawns in their starting place
-                    this.board[i][j] = new Pawn(Piece.PieceOwner.PLAYER1);
-                }
-            }
-        }
+        player2Pawns = BitBoard.rowMask(0) | BitBoard.rowMask(1) | BitBoard.rowMask(2);
+        player1Pawns = BitBoard.rowMask(5) | BitBoard.rowMask(6) | BitBoard.rowMask(7);
+        player1Kings = 0;
+        player2Kings = 0;
         turn = Piece.PieceOwner.PLAYER1;
+        this.rehash();
         this.player2Score.setValue(0);
         this.player1Score.setValue(0);
     }
@@ -215,12 +629,7 @@ public class Board {
      * @return Piece - returns the piece at the specified position.
      */
     public Piece getPiece(Position pos) {
-        int r = pos.getRow();
-        int c = pos.getColumn();
-        if (r < 0 || r >= BOARD_SIZE || c < 0 || c >= BOARD_SIZE) return null;
-
-        return board[r][c];
-
+        return this.getPiece(pos.getRow(), pos.getColumn());
     }
 
     /**
@@ -231,17 +640,29 @@ public class Board {
      * @return Piece - returns the piece at the specified position.
      */
     public Piece getPiece(int r, int c) {
-        if (r < 0 || r >= BOARD_SIZE || c < 0 || c >= BOARD_SIZE) return null;
-        return board[r][c];
+        int square = BitBoard.square(r, c);
+        if (square < 0) return null;
+        return pieceAt(square, player1Pawns, player1Kings, player2Pawns, player2Kings);
+    }
 
+    /**
+     * Returns the Piece that was at the given row and column just before the last move.
+     *
+     * @return the piece, or null if the square was empty or no move has been made yet.
+     */
+    public Piece getPrevPiece(int r, int c) {
+        int square = BitBoard.square(r, c);
+        if (square < 0 || prevBoard == null) return null;
+        return pieceAt(square, prevBoard);
     }
 
     public boolean isEmpty(int r, int c) {
-        return this.getPiece(r, c) == null;
+        int square = BitBoard.square(r, c);
+        return square < 0 || (this.getOccupied() & BitBoard.bit(square)) == 0;
     }
 
     public boolean isEmpty(Position pos) {
-        return this.getPiece(pos) == null;
+        return this.isEmpty(pos.getRow(), pos.getColumn());
     }
 
     /**
@@ -250,10 +671,12 @@ public class Board {
      */
     public boolean undo() {
         if (prevBoard != null) {
-            futureBoard = cloneBoardArray(board);
+            futureBoard = masks();
+            futureHash = hash;
             futurePlayer1Score = this.getPlayer1Score();
             futurePlayer2Score = this.getPlayer2Score();
-            board = cloneBoardArray(prevBoard);
+            restore(prevBoard);
+            hash = prevHash;
             player2Score.setValue(prevPlayer2Score);
             player1Score.setValue(prevPlayer1Score);
             prevBoard = null;
@@ -270,10 +693,12 @@ public class Board {
      */
     public boolean redo() {
         if (futureBoard != null) {
-            prevBoard = cloneBoardArray(board);
+            prevBoard = masks();
+            prevHash = hash;
             prevPlayer1Score = getPlayer1Score();
             prevPlayer2Score = getPlayer2Score();
-            board = cloneBoardArray(futureBoard);
+            restore(futureBoard);
+            hash = futureHash;
             player2Score.setValue(futurePlayer2Score);
             player1Score.setValue(futurePlayer1Score);
             futureBoard = null;
@@ -285,62 +710,56 @@ public class Board {
 
 
     /**
-     * Iterates through the board looking at if each player has at least one possible movement.
+     * Looks at if each player has at least one possible movement.
      * If each player has at least one move, we return null symbolizing no-one is a winner here.
      * If one of players has possible moves and the other doesn't we return that player.
+     * The answer is kept until the position changes, and finding out stops at the first move of each player.
      *
      * @return PieceOwner type of the winning player or null if the game hasn't ended yet.
      */
     public Piece.PieceOwner isGameOver() {
-        boolean p1HasMoves = false, p2HasMoves = false;
-
-        for (int r = 0; r < BOARD_SIZE; r++) {
-            for (int c = (1 - r % 2); c < BOARD_SIZE; c += 2) { // Makes sure the Pieces are placed on squares where i+j is odd
-                Piece piece = this.board[r][c];
-                if (piece != null) {
-                    if (piece.generateMoves(new Board(this), new Position(r, c)).size() != 0) {
-                        if (piece.owner == Piece.PieceOwner.PLAYER1) p1HasMoves = true;
-                        else p2HasMoves = true;
-
-                        if (p1HasMoves && p2HasMoves) return null;
-                    }
-
-                }
-            }
+        if (!gameOverKnown) {
+            boolean p1HasMoves = this.hasMoves(Piece.PieceOwner.PLAYER1);
+            boolean p2HasMoves = this.hasMoves(Piece.PieceOwner.PLAYER2);
+
+            if (p1HasMoves && p2HasMoves) winner = null;
+            else if (p1HasMoves) winner = Piece.PieceOwner.PLAYER1;
+            else winner = Piece.PieceOwner.PLAYER2;
+            gameOverKnown = true;
         }
-        if (p1HasMoves) return Piece.PieceOwner.PLAYER1;
+        return winner;
+    }
 
-        return Piece.PieceOwner.PLAYER2;
+    private int[] masks() {
+        return new int[]{player1Pawns, player1Kings, player2Pawns, player2Kings};
     }
 
+    private void restore(int[] masks) {
+        player1Pawns = masks[0];
+        player1Kings = masks[1];
+        player2Pawns = masks[2];
+        player2Kings = masks[3];
+        this.recountPositional();
+        this.invalidate();
+    }
 
-    public Piece[][] cloneBoardArray(Piece[][] b) {
-        if (b == null) return b;
-        Piece[][] newBoard = new Piece[BOARD_SIZE][BOARD_SIZE];
+    private static Piece pieceAt(int square, int[] masks) {
+        return pieceAt(square, masks[0], masks[1], masks[2], masks[3]);
+    }
 
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            for (int j = (1 - i % 2); j < BOARD_SIZE; j += 2) {
-                if (b[i][j] != null) newBoard[i][j] = b[i][j].clone();
-                else newBoard[i][j] = null;
-            }
-        }
-        return newBoard;
+    private static Piece pieceAt(int square, int p1Pawns, int p1Kings, int p2Pawns, int p2Kings) {
+        int bit = BitBoard.bit(square);
+        if ((p1Pawns & bit) != 0) return new Pawn(Piece.PieceOwner.PLAYER1);
+        if ((p1Kings & bit) != 0) return new King(Piece.PieceOwner.PLAYER1);
+        if ((p2Pawns & bit) != 0) return new Pawn(Piece.PieceOwner.PLAYER2);
+        if ((p2Kings & bit) != 0) return new King(Piece.PieceOwner.PLAYER2);
+        return null;
     }
 
     public void display() {
         for (int i = 0; i < BOARD_SIZE; i++) {
             for (int j = 0; j < BOARD_SIZE; j++) {
-                Piece piece = this.board[i][j];
-                char p = ' ';
-                if (piece != null) {
-                    if (piece.owner == Piece.PieceOwner.PLAYER1) {
-                        p = 'a';
-                    } else {
-                        p = 'b';
-                    }
-                    if (piece instanceof King) p = Character.toUpperCase(p);
-                }
-                String box = "|" + p + ((j == BOARD_SIZE - 1) ? "|" : "");
+                String box = "|" + symbol(this.getPiece(i, j), ' ') + ((j == BOARD_SIZE - 1) ? "|" : "");
 
                 System.out.print(box);
             }
@@ -349,6 +768,14 @@ public class Board {
         }
     }
 
+    private static char symbol(Piece piece, char empty) {
+        if (piece == null) return empty;
+
+        char p = (piece.owner == Piece.PieceOwner.PLAYER1) ? 'a' : 'b';
+        if (piece instanceof King) p = Character.toUpperCase(p);
+        return p;
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (this == obj) return true;
@@ -356,37 +783,21 @@ public class Board {
 
         Board b = (Board) obj;
 
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            for (int j = 0; j < BOARD_SIZE; j++) {
-                {
-                    Position pos = new Position(i, j);
-                    if (b.getPiece(pos) == null && this.getPiece(pos) == null) continue;
-                    if (!b.getPiece(pos).equals(this.getPiece(pos))) return false;
-                }
-            }
-        }
-        return true;
+        return this.player1Pawns == b.player1Pawns && this.player1Kings == b.player1Kings
+                && this.player2Pawns == b.player2Pawns && this.player2Kings == b.player2Kings;
+    }
+
+    @Override
+    public int hashCode() {
+        // equals ignores whose turn it is, so the side to move is taken out of the hash
+        return Long.hashCode((turn == Piece.PieceOwner.PLAYER2) ? hash ^ Zobrist.SIDE : hash);
     }
 
     @Override
     public String toString() {
-        String boardStr = "";
-        for (int r = 0; r < BOARD_SIZE; r++) {
-            for (int c = (1 - r % 2); c < BOARD_SIZE; c += 2) {
-                Piece piece = this.board[r][c];
-                char p = '-';
-                if (piece != null) {
-                    if (piece.owner == Piece.PieceOwner.PLAYER1) {
-                        p = 'a';
-                    } else {
-                        p = 'b';
-                    }
-                    if (piece instanceof King)
-                        p = Character.toUpperCase(p);
-                }
-                boardStr += p;
-            }
-        }
-        return boardStr;
+        char[] boardStr = new char[BitBoard.SQUARES];
+        for (int s = 0; s < BitBoard.SQUARES; s++)
+            boardStr[s] = symbol(pieceAt(s, player1Pawns, player1Kings, player2Pawns, player2Kings), '-');
+        return new String(boardStr);
     }
 }
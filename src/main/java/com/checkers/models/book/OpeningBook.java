@@ -0,0 +1,155 @@
+package com.checkers.models.book;
+
+import com.checkers.models.Board;
+import com.checkers.models.engine.MoveCodec;
+import com.checkers.models.engine.MoveGenerator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * Moves to play in the opening, as written by {@link OpeningBookBuilder}. The file is mapped into memory and holds
+ * one entry per move played from a position: the Zobrist hash of the position, the encoded move, how many games
+ * played it and the points they scored for the player who made it. Entries are sorted by hash, so the moves of a
+ * position are found by binary search.
+ * <p>
+ * A move is picked at random, weighted by its points plus one, so that moves which did well are played more often
+ * but others still come up now and then.
+ * </p>
+ */
+public final class OpeningBook {
+    public static final String DEFAULT_PATH = "src/opening.book";
+
+    static final int MAGIC = 0x434B4F42; // "CKOB"
+    static final int VERSION = 1;
+    static final int HEADER = 4 * Integer.BYTES; // magic, version, plies, entries
+    static final int ENTRY = 2 * Long.BYTES + 2 * Integer.BYTES; // hash, move, games, points
+
+    private final ByteBuffer entries;
+    private final int size;
+    private final int plies;
+
+    private OpeningBook(ByteBuffer buffer) throws IOException {
+        if (buffer.capacity() < HEADER || buffer.getInt(0) != MAGIC || buffer.getInt(Integer.BYTES) != VERSION)
+            throw new IOException("Not an opening book.");
+        this.plies = buffer.getInt(2 * Integer.BYTES);
+        this.size = buffer.getInt(3 * Integer.BYTES);
+        if (buffer.capacity() != HEADER + (long) size * ENTRY)
+            throw new IOException("The opening book is truncated.");
+        this.entries = buffer;
+    }
+
+    /**
+     * Maps a book file into memory.
+     */
+    public static OpeningBook open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Opens the book at {@link #DEFAULT_PATH}.
+     *
+     * @return the book, or null if it hasn't been built or can't be read
+     */
+    public static OpeningBook openDefault() {
+        Path file = Paths.get(DEFAULT_PATH);
+        if (!Files.exists(file))
+            return null;
+        try {
+            return open(file);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the number of plies from the start of the game the book was built from.
+     */
+    public int getPlies() {
+        return plies;
+    }
+
+    /**
+     * Returns the number of moves in the book, over all positions.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Picks a book move for a position.
+     *
+     * @param random where the weighted choice comes from
+     * @return the encoded move, or {@link MoveCodec#NONE} if the book has no legal move for the position
+     */
+    public long probe(Board board, Random random) {
+        long hash = board.hash();
+        int first = this.first(hash);
+        if (first == size || hash(first) != hash)
+            return MoveCodec.NONE;
+
+        long[] legal = new long[MoveGenerator.MAX_MOVES];
+        int count = board.generateMoves(legal);
+        long[] moves = new long[count];
+        long[] weights = new long[count];
+        int found = 0;
+        long total = 0;
+        for (int i = first; i < size && hash(i) == hash && found < count; i++) {
+            long move = entries.getLong(offset(i) + Long.BYTES);
+            if (!contains(legal, count, move))
+                continue; // another position with the same hash
+            moves[found] = move;
+            weights[found] = entries.getInt(offset(i) + 2 * Long.BYTES + Integer.BYTES) + 1L;
+            total += weights[found++];
+        }
+        if (found == 0)
+            return MoveCodec.NONE;
+
+        long pick = (long) (random.nextDouble() * total);
+        for (int i = 0; i < found; i++) {
+            pick -= weights[i];
+            if (pick < 0)
+                return moves[i];
+        }
+        return moves[found - 1];
+    }
+
+    /**
+     * Returns the first entry whose hash is not below the given one.
+     */
+    private int first(long hash) {
+        int low = 0, high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (hash(middle) < hash)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    private long hash(int entry) {
+        return entries.getLong(offset(entry));
+    }
+
+    private static int offset(int entry) {
+        return HEADER + entry * ENTRY;
+    }
+
+    private static boolean contains(long[] moves, int count, long move) {
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == move)
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,177 @@
+package com.checkers.models.book;
+
+import com.checkers.models.Board;
+import com.checkers.models.engine.MoveCodec;
+import com.checkers.models.engine.MoveGenerator;
+import com.checkers.models.exceptions.InValidMove;
+import com.checkers.models.move.Move;
+import com.checkers.models.piece.Piece;
+import com.checkers.models.players.AlphaBetaMinMaxAIPlayer;
+import com.checkers.models.players.Player;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Gathers the moves played in the first plies of many games, with how well each did, and writes them as an
+ * {@link OpeningBook}. Games can come from self-play or be added one by one, e.g. from a collection of games.
+ * <p>
+ * Run it with the number of self-play games (200 by default), the plies to keep (12), the search depth of the
+ * players (4) and the file to write, {@link OpeningBook#DEFAULT_PATH} by default.
+ * </p>
+ */
+public class OpeningBookBuilder {
+    public static final int DEFAULT_PLIES = 12;
+    public static final int MAX_GAME_PLIES = 200; // a self-play game this long is counted as a draw
+    public static final double DEFAULT_EXPLORATION = 0.2;
+
+    private final int plies;
+    private final Map<Long, Map<Long, Stats>> positions = new HashMap<>();
+    private final Random random = new Random();
+    private double exploration = DEFAULT_EXPLORATION;
+    private int games;
+
+    private static final class Stats {
+        int games;
+        int points; // two for a win and one for a draw, for the player who made the move
+    }
+
+    /**
+     * @param plies the number of plies from the start of each game to keep
+     */
+    public OpeningBookBuilder(int plies) {
+        if (plies < 1) throw new IllegalArgumentException("A book needs at least one ply.");
+        this.plies = plies;
+    }
+
+    public static void main(String[] args) throws IOException, InValidMove, CloneNotSupportedException {
+        int games = (args.length > 0) ? Integer.parseInt(args[0]) : 200;
+        int plies = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_PLIES;
+        int depth = (args.length > 2) ? Integer.parseInt(args[2]) : 4;
+        Path file = Paths.get((args.length > 3) ? args[3] : OpeningBook.DEFAULT_PATH);
+
+        OpeningBookBuilder builder = new OpeningBookBuilder(plies);
+        builder.selfPlay(new AlphaBetaMinMaxAIPlayer("Player 1", Piece.PieceOwner.PLAYER1, depth),
+                new AlphaBetaMinMaxAIPlayer("Player 2", Piece.PieceOwner.PLAYER2, depth), games);
+        int entries = builder.write(file, 1);
+        System.out.println(builder.getGames() + " games, " + builder.getPositions() + " positions, "
+                + entries + " moves written to " + file);
+    }
+
+    /**
+     * Sets how often a self-play game takes a random move instead of the player's within the plies of the book,
+     * so that the games spread over more openings. How these moves did decides how often the book plays them.
+     *
+     * @param exploration the probability of a random move, 0 to always play the player's move
+     */
+    public void setExploration(double exploration) {
+        this.exploration = exploration;
+    }
+
+    public void setSeed(long seed) {
+        random.setSeed(seed);
+    }
+
+    /**
+     * Plays games between two players from the start position and adds them.
+     */
+    public void selfPlay(Player player1, Player player2, int games) throws InValidMove, CloneNotSupportedException {
+        long[] moves = new long[MAX_GAME_PLIES];
+        long[] legal = new long[MoveGenerator.MAX_MOVES];
+        for (int game = 0; game < games; game++) {
+            Board board = new Board();
+            int count = 0;
+            while (board.isGameOver() == null && count < MAX_GAME_PLIES) {
+                if (count < plies && random.nextDouble() < exploration) {
+                    moves[count] = legal[random.nextInt(board.generateMoves(legal))];
+                } else {
+                    Player player = (board.getTurn() == player1.myTurn) ? player1 : player2;
+                    Move move = player.makeMove(new Board(board));
+                    if (move == null)
+                        break;
+                    moves[count] = MoveCodec.fromMove(move);
+                }
+                board.doMove(moves[count++]);
+            }
+            this.addGame(moves, count, board.isGameOver());
+        }
+    }
+
+    /**
+     * Adds a game played from the start position. Its moves are replayed and the game is cut short at the first
+     * illegal one.
+     *
+     * @param moves  the encoded moves of the game
+     * @param count  the number of moves
+     * @param winner the winner, or null for a draw or an unfinished game
+     */
+    public void addGame(long[] moves, int count, Piece.PieceOwner winner) {
+        Board board = new Board();
+        long[] legal = new long[MoveGenerator.MAX_MOVES];
+        for (int ply = 0; ply < Math.min(count, plies); ply++) {
+            int legalCount = board.generateMoves(legal);
+            boolean found = false;
+            for (int i = 0; i < legalCount && !found; i++)
+                found = legal[i] == moves[ply];
+            if (!found)
+                break;
+
+            Stats stats = positions.computeIfAbsent(board.hash(), hash -> new HashMap<>())
+                    .computeIfAbsent(moves[ply], move -> new Stats());
+            stats.games++;
+            if (winner == null)
+                stats.points++;
+            else if (winner == board.getTurn())
+                stats.points += 2;
+            board.doMove(moves[ply]);
+        }
+        games++;
+    }
+
+    public int getGames() {
+        return games;
+    }
+
+    public int getPositions() {
+        return positions.size();
+    }
+
+    /**
+     * Writes the book, sorted by position hash.
+     *
+     * @param minGames moves played in fewer games are left out
+     * @return the number of moves written
+     */
+    public int write(Path file, int minGames) throws IOException {
+        List<long[]> entries = new ArrayList<>(); // hash, move, games, points
+        for (Map.Entry<Long, Map<Long, Stats>> position : positions.entrySet()) {
+            for (Map.Entry<Long, Stats> move : position.getValue().entrySet()) {
+                Stats stats = move.getValue();
+                if (stats.games >= minGames)
+                    entries.add(new long[]{position.getKey(), move.getKey(), stats.games, stats.points});
+            }
+        }
+        entries.sort((a, b) -> (a[0] != b[0]) ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+
+        ByteBuffer buffer = ByteBuffer.allocate(OpeningBook.HEADER + entries.size() * OpeningBook.ENTRY);
+        buffer.putInt(OpeningBook.MAGIC).putInt(OpeningBook.VERSION).putInt(plies).putInt(entries.size());
+        for (long[] entry : entries)
+            buffer.putLong(entry[0]).putLong(entry[1]).putInt((int) entry[2]).putInt((int) entry[3]);
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }
+        return entries.size();
+    }
+}
@@ -0,0 +1,131 @@
+package com.checkers.models.endgame;
+
+import com.checkers.models.Board;
+import com.checkers.models.piece.Piece;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Perfect play for every position with few pieces on the board, as solved by {@link EndgameGenerator}. The file is
+ * mapped into memory and holds one byte per position of the {@link EndgameIndex}, so a probe is an index computation
+ * and a single read.
+ * <p>
+ * A value is 0 for a draw, d + 1 if the player to move wins in d plies and -(d + 1) if they lose in d plies.
+ * Distances longer than {@link #MAX_DISTANCE} plies are stored as MAX_DISTANCE. The game is over as soon as one of
+ * the players can't move, as {@link Board#isGameOver()} has it, and a position that can't be forced either way is a
+ * draw.
+ * </p>
+ */
+public final class EndgameDatabase {
+    public static final String DEFAULT_PATH = "src/endgame.db";
+    public static final int DEFAULT_MAX_PIECES = 4;
+    /**
+     * Returned by {@link #probe(Board)} for positions the database doesn't hold.
+     */
+    public static final int UNKNOWN = Byte.MIN_VALUE;
+    public static final int DRAW = 0;
+    public static final int MAX_DISTANCE = Byte.MAX_VALUE - 1;
+
+    static final int MAGIC = 0x434B4442; // "CKDB"
+    static final int VERSION = 1;
+    static final int HEADER = 4 * Integer.BYTES; // magic, version, most pieces, unused
+
+    private final MappedBytes data;
+    private final EndgameIndex index;
+
+    private EndgameDatabase(MappedBytes data) throws IOException {
+        if (data.length() < HEADER || data.getInt(0) != MAGIC || data.getInt(Integer.BYTES) != VERSION)
+            throw new IOException("Not an endgame database.");
+        int maxPieces = data.getInt(2 * Integer.BYTES);
+        if (maxPieces < EndgameIndex.MIN_PIECES || maxPieces > EndgameIndex.MAX_PIECES)
+            throw new IOException("The endgame database holds an unknown number of pieces.");
+        this.data = data;
+        this.index = new EndgameIndex(maxPieces);
+        if (data.length() != HEADER + index.size())
+            throw new IOException("The endgame database is truncated.");
+    }
+
+    /**
+     * Maps a database file into memory.
+     */
+    public static EndgameDatabase open(Path file) throws IOException {
+        return new EndgameDatabase(MappedBytes.read(file));
+    }
+
+    /**
+     * Opens the database at {@link #DEFAULT_PATH}.
+     *
+     * @return the database, or null if it hasn't been generated or can't be read
+     */
+    public static EndgameDatabase openDefault() {
+        return openIfValid(Paths.get(DEFAULT_PATH));
+    }
+
+    /**
+     * Opens a database, or returns null if the file is missing, can't be read or isn't a whole database, so that
+     * a player can go on without one.
+     */
+    static EndgameDatabase openIfValid(Path file) {
+        if (!Files.exists(file))
+            return null;
+        try {
+            return open(file);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    public int getMaxPieces() {
+        return index.getMaxPieces();
+    }
+
+    /**
+     * Tells whether the database holds the positions with this many pieces on the board.
+     */
+    public boolean covers(int pieces) {
+        return pieces <= index.getMaxPieces();
+    }
+
+    /**
+     * Returns the value of a position for the player to move, or {@link #UNKNOWN} if it has too many pieces or a
+     * player has none left.
+     */
+    public int probe(Board board) {
+        long position = index.index(board);
+        return (position < 0) ? UNKNOWN : data.get(HEADER + position);
+    }
+
+    /**
+     * Returns the value of a position given by its piece masks, see {@link #probe(Board)}.
+     */
+    public int probe(int p1Pawns, int p1Kings, int p2Pawns, int p2Kings, Piece.PieceOwner turn) {
+        long position = index.index(p1Pawns, p1Kings, p2Pawns, p2Kings, turn);
+        return (position < 0) ? UNKNOWN : data.get(HEADER + position);
+    }
+
+    public static boolean isWin(int value) {
+        return value > DRAW;
+    }
+
+    public static boolean isLoss(int value) {
+        return value < DRAW && value != UNKNOWN;
+    }
+
+    /**
+     * Returns the number of plies until the game is over with best play, 0 for a draw.
+     */
+    public static int distance(int value) {
+        return (value == DRAW || value == UNKNOWN) ? 0 : Math.abs(value) - 1;
+    }
+
+    static byte win(int distance) {
+        return (byte) (Math.min(distance, MAX_DISTANCE) + 1);
+    }
+
+    static byte loss(int distance) {
+        return (byte) -(Math.min(distance, MAX_DISTANCE) + 1);
+    }
+}
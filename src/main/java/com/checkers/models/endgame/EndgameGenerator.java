@@ -0,0 +1,269 @@
+package com.checkers.models.endgame;
+
+import com.checkers.models.Board;
+import com.checkers.models.engine.BitBoard;
+import com.checkers.models.engine.MoveCodec;
+import com.checkers.models.engine.MoveGenerator;
+import com.checkers.models.piece.Piece;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Builds an {@link EndgameDatabase} by retrograde analysis. Signatures are solved in the order of the
+ * {@link EndgameIndex}, so the positions reached by a capture or a crowning are already known when a signature is
+ * started. Within a signature the game is solved backwards from the positions where it is over: positions are
+ * settled in order of their distance to the end, and each settled position is followed back along the quiet moves
+ * leading to it. A position is won as soon as one of its moves leads to a lost one, and lost once all of its moves
+ * lead to won ones. Whatever is left at the end is a draw.
+ * <p>
+ * Run it with the most pieces (4 by default, up to 6) and the file to write, {@link EndgameDatabase#DEFAULT_PATH}
+ * by default. Four pieces take about 15 seconds and 13 MB, six pieces several GB of disk and memory.
+ * </p>
+ */
+public final class EndgameGenerator {
+    private static final byte UNRESOLVED = Byte.MIN_VALUE;
+    private static final byte NO_LOSS = 1;  // a move leads to a draw
+    private static final byte HAS_WIN = 2;  // a move leads to a lost position
+    private static final int[] KING_DIRECTIONS = {BitBoard.DOWN_LEFT, BitBoard.DOWN_RIGHT, BitBoard.UP_RIGHT, BitBoard.UP_LEFT};
+    private static final int[] PLAYER1_PAWN_ORIGINS = {BitBoard.DOWN_LEFT, BitBoard.DOWN_RIGHT}; // player one moves up
+    private static final int[] PLAYER2_PAWN_ORIGINS = {BitBoard.UP_LEFT, BitBoard.UP_RIGHT};
+    private static final int PLAYER1_KING_ROW = BitBoard.rowMask(0);
+    private static final int PLAYER2_KING_ROW = BitBoard.rowMask(Board.BOARD_SIZE - 1);
+
+    private final EndgameIndex index;
+    private final MappedBytes data;
+    private final long[] moves = new long[MoveGenerator.MAX_MOVES];
+    private final int[] masks = new int[4];
+
+    // the signature being solved, its positions numbered with player one to move first
+    private int signature;
+    private int placements;
+    private byte[] values = new byte[0];
+    private byte[] pending = new byte[0];  // quiet moves whose result isn't known yet
+    private byte[] longest = new byte[0];  // distance of the longest loss found, counting the move to it
+    private byte[] flags = new byte[0];
+    private final int[][] buckets = new int[EndgameDatabase.MAX_DISTANCE + 1][16]; // positions to settle by distance
+    private final int[] bucketSizes = new int[EndgameDatabase.MAX_DISTANCE + 1];
+
+    private EndgameGenerator(EndgameIndex index, MappedBytes data) {
+        this.index = index;
+        this.data = data;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int maxPieces = (args.length > 0) ? Integer.parseInt(args[0]) : EndgameDatabase.DEFAULT_MAX_PIECES;
+        Path file = Paths.get((args.length > 1) ? args[1] : EndgameDatabase.DEFAULT_PATH);
+        long start = System.currentTimeMillis();
+        generate(maxPieces, file);
+        System.out.println("Solved " + new EndgameIndex(maxPieces).size() + " positions up to " + maxPieces
+                + " pieces in " + (System.currentTimeMillis() - start) + " ms, written to " + file);
+    }
+
+    /**
+     * Solves every position with at most the given number of pieces and writes them to a file.
+     */
+    public static void generate(int maxPieces, Path file) throws IOException {
+        EndgameIndex index = new EndgameIndex(maxPieces);
+        MappedBytes data = MappedBytes.create(file, EndgameDatabase.HEADER + index.size());
+        EndgameGenerator generator = new EndgameGenerator(index, data);
+        for (int s = 0; s < index.signatureCount(); s++)
+            generator.solve(s);
+
+        // the header goes last so that an unfinished file is never taken for a database
+        data.putInt(2 * Integer.BYTES, maxPieces);
+        data.putInt(Integer.BYTES, EndgameDatabase.VERSION);
+        data.putInt(0, EndgameDatabase.MAGIC);
+        data.force();
+    }
+
+    private void solve(int signature) {
+        long size = index.placements(signature);
+        if (2 * size > Integer.MAX_VALUE >> 1)
+            throw new IllegalStateException("Signature " + signature + " is too large to be solved in memory.");
+        this.signature = signature;
+        this.placements = (int) size;
+        int positions = 2 * placements;
+        if (values.length < positions) {
+            values = new byte[positions];
+            pending = new byte[positions];
+            longest = new byte[positions];
+            flags = new byte[positions];
+        }
+        Arrays.fill(values, 0, positions, UNRESOLVED);
+        Arrays.fill(bucketSizes, 0);
+
+        for (int position = 0; position < positions; position++)
+            start(position);
+        for (int distance = 0; distance <= EndgameDatabase.MAX_DISTANCE; distance++) {
+            for (int i = 0; i < bucketSizes[distance]; i++)
+                settle(buckets[distance][i], distance);
+        }
+
+        long offset = EndgameDatabase.HEADER + index.offset(signature, Piece.PieceOwner.PLAYER1);
+        for (int position = 0; position < positions; position++)
+            data.put(offset + position, (values[position] == UNRESOLVED) ? EndgameDatabase.DRAW : values[position]);
+    }
+
+    private Piece.PieceOwner turn(int position) {
+        return (position < placements) ? Piece.PieceOwner.PLAYER1 : Piece.PieceOwner.PLAYER2;
+    }
+
+    private int position(int p1Pawns, int p1Kings, int p2Pawns, int p2Kings, Piece.PieceOwner turn) {
+        int placement = (int) index.placement(signature, p1Pawns, p1Kings, p2Pawns, p2Kings);
+        return (turn == Piece.PieceOwner.PLAYER1) ? placement : placements + placement;
+    }
+
+    /**
+     * Looks at the moves of a position: the game may be over already, and moves leaving the signature have a
+     * known result. Quiet moves are counted, their result comes later.
+     */
+    private void start(int position) {
+        Piece.PieceOwner turn = turn(position);
+        Piece.PieceOwner opponent = opponent(turn);
+        index.position(signature, position % placements, masks);
+        boolean player1 = turn == Piece.PieceOwner.PLAYER1;
+        int pawns = masks[player1 ? 0 : 2], kings = masks[player1 ? 1 : 3];
+        int enemyPawns = masks[player1 ? 2 : 0], enemyKings = masks[player1 ? 3 : 1];
+
+        pending[position] = 0;
+        longest[position] = 0;
+        flags[position] = 0;
+        boolean canMove = MoveGenerator.hasMove(turn, pawns, kings, enemyPawns | enemyKings);
+        boolean opponentCanMove = MoveGenerator.hasMove(opponent, enemyPawns, enemyKings, pawns | kings);
+        if (!canMove || !opponentCanMove) {
+            push(position, wins(turn, canMove, opponentCanMove), 0);
+            return;
+        }
+
+        int count = MoveGenerator.generate(turn, pawns, kings, enemyPawns | enemyKings, moves);
+        int quiet = 0, shortestWin = Integer.MAX_VALUE, longestLoss = 0;
+        boolean draw = false;
+        for (int i = 0; i < count; i++) {
+            long move = moves[i];
+            int from = BitBoard.bit(MoveCodec.from(move)), to = BitBoard.bit(MoveCodec.to(move));
+            int captured = MoveCodec.captured(move);
+            int movedPawns = pawns, movedKings = kings;
+            boolean crowned = false;
+            if ((kings & from) != 0) {
+                movedKings = (kings & ~from) | to;
+            } else if ((to & (player1 ? PLAYER1_KING_ROW : PLAYER2_KING_ROW)) != 0) {
+                movedPawns &= ~from;
+                movedKings |= to;
+                crowned = true;
+            } else {
+                movedPawns = (pawns & ~from) | to;
+            }
+            if (captured == 0 && !crowned) {
+                quiet++; // the position stays in the signature
+                continue;
+            }
+
+            int value = value(movedPawns, movedKings, enemyPawns & ~captured, enemyKings & ~captured, turn);
+            if (EndgameDatabase.isLoss(value))
+                shortestWin = Math.min(shortestWin, EndgameDatabase.distance(value) + 1);
+            else if (EndgameDatabase.isWin(value))
+                longestLoss = Math.max(longestLoss, EndgameDatabase.distance(value) + 1);
+            else
+                draw = true;
+        }
+
+        pending[position] = (byte) quiet;
+        longest[position] = (byte) Math.min(longestLoss, EndgameDatabase.MAX_DISTANCE);
+        if (draw)
+            flags[position] |= NO_LOSS;
+        if (shortestWin != Integer.MAX_VALUE) {
+            flags[position] |= HAS_WIN;
+            push(position, true, shortestWin);
+        } else if (quiet == 0 && !draw) {
+            push(position, false, longestLoss);
+        }
+    }
+
+    /**
+     * Returns the stored value of a position reached by a capture or a crowning, for the player to move in it.
+     */
+    private int value(int pawns, int kings, int enemyPawns, int enemyKings, Piece.PieceOwner mover) {
+        if ((enemyPawns | enemyKings) == 0) { // the player to move has no piece left
+            boolean canMove = MoveGenerator.hasMove(mover, pawns, kings, 0);
+            return wins(opponent(mover), false, canMove) ? EndgameDatabase.win(0) : EndgameDatabase.loss(0);
+        }
+        boolean player1 = mover == Piece.PieceOwner.PLAYER1;
+        long position = player1
+                ? index.index(pawns, kings, enemyPawns, enemyKings, Piece.PieceOwner.PLAYER2)
+                : index.index(enemyPawns, enemyKings, pawns, kings, Piece.PieceOwner.PLAYER1);
+        return data.get(EndgameDatabase.HEADER + position);
+    }
+
+    private void push(int position, boolean win, int distance) {
+        int bucket = Math.min(distance, EndgameDatabase.MAX_DISTANCE);
+        if (bucketSizes[bucket] == buckets[bucket].length)
+            buckets[bucket] = Arrays.copyOf(buckets[bucket], 2 * buckets[bucket].length);
+        buckets[bucket][bucketSizes[bucket]++] = (position << 1) | (win ? 1 : 0);
+    }
+
+    /**
+     * Settles a position and passes its result back to the positions a quiet move leads to it from.
+     */
+    private void settle(int event, int distance) {
+        int position = event >>> 1;
+        boolean win = (event & 1) != 0;
+        if (values[position] != UNRESOLVED)
+            return; // settled earlier, at a shorter distance
+        values[position] = win ? EndgameDatabase.win(distance) : EndgameDatabase.loss(distance);
+
+        Piece.PieceOwner mover = opponent(turn(position));
+        index.position(signature, position % placements, masks);
+        boolean player1 = mover == Piece.PieceOwner.PLAYER1;
+        int pawns = masks[player1 ? 0 : 2], kings = masks[player1 ? 1 : 3];
+        int enemyPawns = masks[player1 ? 2 : 0], enemyKings = masks[player1 ? 3 : 1];
+        int occupied = pawns | kings | enemyPawns | enemyKings;
+
+        for (int pieces = pawns | kings; pieces != 0; pieces &= pieces - 1) {
+            int square = Integer.numberOfTrailingZeros(pieces);
+            int at = BitBoard.bit(square);
+            boolean king = (kings & at) != 0;
+            int[] origins = king ? KING_DIRECTIONS : (player1 ? PLAYER1_PAWN_ORIGINS : PLAYER2_PAWN_ORIGINS);
+            for (int d : origins) {
+                int origin = BitBoard.STEP[square][d];
+                if (origin < 0 || (occupied & BitBoard.bit(origin)) != 0)
+                    continue;
+                int fromPawns = king ? pawns : (pawns & ~at) | BitBoard.bit(origin);
+                int fromKings = king ? (kings & ~at) | BitBoard.bit(origin) : kings;
+                // the step was only legal if no jump was possible
+                int count = MoveGenerator.generate(mover, fromPawns, fromKings, enemyPawns | enemyKings, moves);
+                if (count == 0 || MoveCodec.captured(moves[0]) != 0)
+                    continue;
+
+                int previous = player1
+                        ? position(fromPawns, fromKings, enemyPawns, enemyKings, mover)
+                        : position(enemyPawns, enemyKings, fromPawns, fromKings, mover);
+                if (values[previous] != UNRESOLVED)
+                    continue;
+                if (!win) {
+                    flags[previous] |= HAS_WIN;
+                    push(previous, true, distance + 1);
+                } else {
+                    longest[previous] = (byte) Math.max(longest[previous], Math.min(distance + 1, EndgameDatabase.MAX_DISTANCE));
+                    if (--pending[previous] == 0 && flags[previous] == 0)
+                        push(previous, false, longest[previous]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tells whether the player to move has won a game that is over, as {@link Board#isGameOver()} decides it:
+     * player one wins if they can still move, player two otherwise.
+     */
+    private static boolean wins(Piece.PieceOwner turn, boolean canMove, boolean opponentCanMove) {
+        boolean player1 = turn == Piece.PieceOwner.PLAYER1;
+        return player1 == (player1 ? canMove : opponentCanMove);
+    }
+
+    private static Piece.PieceOwner opponent(Piece.PieceOwner player) {
+        return (player == Piece.PieceOwner.PLAYER1) ? Piece.PieceOwner.PLAYER2 : Piece.PieceOwner.PLAYER1;
+    }
+}
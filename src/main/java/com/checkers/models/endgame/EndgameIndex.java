@@ -0,0 +1,271 @@
+package com.checkers.models.endgame;
+
+import com.checkers.models.Board;
+import com.checkers.models.engine.BitBoard;
+import com.checkers.models.piece.Piece;
+
+import java.util.Arrays;
+
+/**
+ * Perfect index of the positions of an endgame database: every position with at most a given number of pieces,
+ * each player having at least one, gets its own number between 0 and {@link #size()} and no number is left unused.
+ * <p>
+ * Positions are grouped by signature, the number of pawns and kings of each player. Within a signature a position
+ * is numbered by the player to move and by the combinatorial rank of each set of pieces among the squares still free
+ * for it: player one's pawns, player two's pawns, player one's kings, then player two's kings. A pawn never stands on
+ * its crowning row, so pawns are ranked by how many stand on their own back row and how many in the six middle rows.
+ * </p>
+ * <p>
+ * Signatures are ordered by number of pieces, then by number of pawns. A move either keeps the signature, or
+ * captures or crowns and so leads to a signature that comes before it.
+ * </p>
+ */
+public final class EndgameIndex {
+    public static final int MIN_PIECES = 2;
+    public static final int MAX_PIECES = 6;
+
+    private static final int ROW0 = BitBoard.rowMask(0);
+    private static final int ROW7 = BitBoard.rowMask(Board.BOARD_SIZE - 1);
+    private static final int MIDDLE = ~(ROW0 | ROW7);
+    private static final int EDGE_SQUARES = Integer.bitCount(ROW0);
+    private static final int MIDDLE_SQUARES = Integer.bitCount(MIDDLE);
+    private static final long[][] BINOMIAL = new long[BitBoard.SQUARES + 1][BitBoard.SQUARES + 1];
+
+    static {
+        for (int n = 0; n <= BitBoard.SQUARES; n++) {
+            BINOMIAL[n][0] = 1;
+            for (int k = 1; k <= n; k++)
+                BINOMIAL[n][k] = BINOMIAL[n - 1][k - 1] + BINOMIAL[n - 1][k];
+        }
+    }
+
+    private final int maxPieces;
+    private final int[] signatureIds; // by packed piece counts, -1 if not in the database
+    private final int[][] counts;     // by signature: player one's pawns and kings, player two's pawns and kings
+    private final long[] offsets;     // by signature: index of its first position
+    private final long[] sizes;       // by signature: positions with a given player to move
+    private final long[][] blocks;    // by signature: first placement of each split of the pawns between rows
+    private final long size;
+
+    /**
+     * @param maxPieces the most pieces on the board, from {@link #MIN_PIECES} to {@link #MAX_PIECES}
+     */
+    public EndgameIndex(int maxPieces) {
+        if (maxPieces < MIN_PIECES || maxPieces > MAX_PIECES)
+            throw new IllegalArgumentException("Endgame databases hold from " + MIN_PIECES + " to " + MAX_PIECES + " pieces.");
+        this.maxPieces = maxPieces;
+        this.signatureIds = new int[pack(maxPieces, maxPieces, maxPieces, maxPieces) + 1];
+        Arrays.fill(signatureIds, -1);
+
+        int count = 0;
+        int[][] found = new int[signatureIds.length][];
+        for (int pieces = MIN_PIECES; pieces <= maxPieces; pieces++) {
+            for (int pawns = 0; pawns <= pieces; pawns++) {
+                for (int p1Pawns = 0; p1Pawns <= pawns; p1Pawns++) {
+                    int p2Pawns = pawns - p1Pawns;
+                    for (int p1Kings = 0; p1Kings <= pieces - pawns; p1Kings++) {
+                        int p2Kings = pieces - pawns - p1Kings;
+                        if (p1Pawns + p1Kings == 0 || p2Pawns + p2Kings == 0)
+                            continue;
+                        found[count++] = new int[]{p1Pawns, p1Kings, p2Pawns, p2Kings};
+                    }
+                }
+            }
+        }
+
+        this.counts = Arrays.copyOf(found, count);
+        this.offsets = new long[count];
+        this.sizes = new long[count];
+        this.blocks = new long[count][];
+        long offset = 0;
+        for (int s = 0; s < count; s++) {
+            int[] c = counts[s];
+            signatureIds[pack(c[0], c[1], c[2], c[3])] = s;
+            blocks[s] = blocks(c[0], c[1], c[2], c[3]);
+            offsets[s] = offset;
+            sizes[s] = blocks[s][blocks[s].length - 1];
+            offset += 2 * sizes[s];
+        }
+        this.size = offset;
+    }
+
+    private int pack(int p1Pawns, int p1Kings, int p2Pawns, int p2Kings) {
+        int base = maxPieces + 1;
+        return ((p1Pawns * base + p1Kings) * base + p2Pawns) * base + p2Kings;
+    }
+
+    /**
+     * Works out where each split of the pawns between the back rows and the middle rows starts, the last entry
+     * being the number of placements.
+     */
+    private static long[] blocks(int p1Pawns, int p1Kings, int p2Pawns, int p2Kings) {
+        long[] starts = new long[(EDGE_SQUARES + 1) * (EDGE_SQUARES + 1) + 1];
+        long kings = BINOMIAL[BitBoard.SQUARES - p1Pawns - p2Pawns][p1Kings]
+                * BINOMIAL[BitBoard.SQUARES - p1Pawns - p2Pawns - p1Kings][p2Kings];
+        long start = 0;
+        for (int j = 0; j <= EDGE_SQUARES; j++) {
+            for (int i = 0; i <= EDGE_SQUARES; i++) {
+                starts[j * (EDGE_SQUARES + 1) + i] = start;
+                start += pawnPlacements(p1Pawns, j, p2Pawns, i) * kings;
+            }
+        }
+        starts[starts.length - 1] = start;
+        return starts;
+    }
+
+    /**
+     * Counts the placements of the pawns with j of player one's on row 7 and i of player two's on row 0.
+     */
+    private static long pawnPlacements(int p1Pawns, int j, int p2Pawns, int i) {
+        if (j > p1Pawns || i > p2Pawns)
+            return 0;
+        int p1Middle = p1Pawns - j, p2Middle = p2Pawns - i;
+        if (p1Middle + p2Middle > MIDDLE_SQUARES)
+            return 0;
+        return BINOMIAL[EDGE_SQUARES][j] * BINOMIAL[MIDDLE_SQUARES][p1Middle]
+                * BINOMIAL[EDGE_SQUARES][i] * BINOMIAL[MIDDLE_SQUARES - p1Middle][p2Middle];
+    }
+
+    public int getMaxPieces() {
+        return maxPieces;
+    }
+
+    /**
+     * Returns the number of positions in the database.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Returns the index of a position, or -1 if it has too many pieces or a player has none left.
+     */
+    public long index(int p1Pawns, int p1Kings, int p2Pawns, int p2Kings, Piece.PieceOwner turn) {
+        int signature = signature(p1Pawns, p1Kings, p2Pawns, p2Kings);
+        if (signature < 0 || (p1Pawns & ROW0) != 0 || (p2Pawns & ROW7) != 0)
+            return -1;
+        return offset(signature, turn) + placement(signature, p1Pawns, p1Kings, p2Pawns, p2Kings);
+    }
+
+    /**
+     * Returns the index of a board's position, or -1 if it is not in the database.
+     */
+    public long index(Board board) {
+        return index(board.getPawns(Piece.PieceOwner.PLAYER1), board.getKings(Piece.PieceOwner.PLAYER1),
+                board.getPawns(Piece.PieceOwner.PLAYER2), board.getKings(Piece.PieceOwner.PLAYER2), board.getTurn());
+    }
+
+    /**
+     * Returns the signature of a position given by its piece masks, or -1 if it is not in the database.
+     */
+    int signature(int p1Pawns, int p1Kings, int p2Pawns, int p2Kings) {
+        int a = Integer.bitCount(p1Pawns), b = Integer.bitCount(p1Kings);
+        int c = Integer.bitCount(p2Pawns), d = Integer.bitCount(p2Kings);
+        if (a + b + c + d > maxPieces)
+            return -1;
+        return signatureIds[pack(a, b, c, d)];
+    }
+
+    int signatureCount() {
+        return counts.length;
+    }
+
+    /**
+     * Returns the index of the first position of a signature with the given player to move.
+     */
+    long offset(int signature, Piece.PieceOwner turn) {
+        return offsets[signature] + ((turn == Piece.PieceOwner.PLAYER1) ? 0 : sizes[signature]);
+    }
+
+    /**
+     * Returns the number of placements of the pieces of a signature, the positions of each player to move.
+     */
+    long placements(int signature) {
+        return sizes[signature];
+    }
+
+    /**
+     * Numbers the placement of the pieces of a position within its signature.
+     */
+    long placement(int signature, int p1Pawns, int p1Kings, int p2Pawns, int p2Kings) {
+        int[] c = counts[signature];
+        int j = Integer.bitCount(p1Pawns & ROW7), i = Integer.bitCount(p2Pawns & ROW0);
+        int p1Middle = c[0] - j, p2Middle = c[2] - i;
+        int pawns = p1Pawns | p2Pawns;
+        int free = BitBoard.SQUARES - c[0] - c[2];
+
+        long index = rank(p1Pawns & ROW7, ROW7);
+        index = index * BINOMIAL[MIDDLE_SQUARES][p1Middle] + rank(p1Pawns & MIDDLE, MIDDLE);
+        index = index * BINOMIAL[EDGE_SQUARES][i] + rank(p2Pawns & ROW0, ROW0);
+        index = index * BINOMIAL[MIDDLE_SQUARES - p1Middle][p2Middle] + rank(p2Pawns & MIDDLE, MIDDLE & ~p1Pawns);
+        index = index * BINOMIAL[free][c[1]] + rank(p1Kings, ~pawns);
+        index = index * BINOMIAL[free - c[1]][c[3]] + rank(p2Kings, ~(pawns | p1Kings));
+        return blocks[signature][j * (EDGE_SQUARES + 1) + i] + index;
+    }
+
+    /**
+     * Writes the piece masks of a placement of a signature to <code>masks</code>: player one's pawns and kings,
+     * then player two's pawns and kings. The reverse of {@link #placement}.
+     */
+    void position(int signature, long placement, int[] masks) {
+        int[] c = counts[signature];
+        long[] starts = blocks[signature];
+        int block = 0;
+        while (starts[block + 1] <= placement)
+            block++;
+        int j = block / (EDGE_SQUARES + 1), i = block % (EDGE_SQUARES + 1);
+        long index = placement - starts[block];
+        int p1Middle = c[0] - j, p2Middle = c[2] - i;
+        int free = BitBoard.SQUARES - c[0] - c[2];
+
+        long[] radix = {
+                BINOMIAL[EDGE_SQUARES][j], BINOMIAL[MIDDLE_SQUARES][p1Middle], BINOMIAL[EDGE_SQUARES][i],
+                BINOMIAL[MIDDLE_SQUARES - p1Middle][p2Middle], BINOMIAL[free][c[1]], BINOMIAL[free - c[1]][c[3]]};
+        long[] digits = new long[radix.length];
+        for (int k = radix.length - 1; k >= 0; k--) {
+            digits[k] = index % radix[k];
+            index /= radix[k];
+        }
+
+        int p1Pawns = unrank(digits[0], j, ROW7) | unrank(digits[1], p1Middle, MIDDLE);
+        int p2Pawns = unrank(digits[2], i, ROW0) | unrank(digits[3], p2Middle, MIDDLE & ~p1Pawns);
+        int p1Kings = unrank(digits[4], c[1], ~(p1Pawns | p2Pawns));
+        int p2Kings = unrank(digits[5], c[3], ~(p1Pawns | p2Pawns | p1Kings));
+        masks[0] = p1Pawns;
+        masks[1] = p1Kings;
+        masks[2] = p2Pawns;
+        masks[3] = p2Kings;
+    }
+
+    /**
+     * Colexicographic rank of a set of squares among the squares of a domain.
+     */
+    private static long rank(int set, int domain) {
+        long rank = 0;
+        int k = 1;
+        for (; set != 0; set &= set - 1, k++) {
+            int position = Integer.bitCount(domain & (set & -set) - 1);
+            rank += BINOMIAL[position][k];
+        }
+        return rank;
+    }
+
+    private static int unrank(long rank, int k, int domain) {
+        int set = 0;
+        int position = Integer.bitCount(domain) - 1;
+        for (; k > 0; k--) {
+            while (BINOMIAL[position][k] > rank)
+                position--;
+            rank -= BINOMIAL[position][k];
+            set |= nthSquare(domain, position);
+            position--;
+        }
+        return set;
+    }
+
+    private static int nthSquare(int domain, int n) {
+        for (; n > 0; n--)
+            domain &= domain - 1;
+        return domain & -domain;
+    }
+}
@@ -0,0 +1,79 @@
+package com.checkers.models.endgame;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A file mapped into memory as a single array of bytes. A mapping can't be larger than 2 GB, so big files are mapped
+ * as several segments.
+ */
+final class MappedBytes {
+    private static final int SEGMENT_BITS = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+
+    private final MappedByteBuffer[] segments;
+    private final long length;
+
+    private MappedBytes(FileChannel channel, FileChannel.MapMode mode, long length) throws IOException {
+        this.length = length;
+        this.segments = new MappedByteBuffer[(int) ((length + SEGMENT_MASK) >>> SEGMENT_BITS)];
+        for (int i = 0; i < segments.length; i++) {
+            long start = (long) i << SEGMENT_BITS;
+            segments[i] = channel.map(mode, start, Math.min(length - start, 1L << SEGMENT_BITS));
+        }
+    }
+
+    /**
+     * Maps a whole file for reading.
+     */
+    static MappedBytes read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new MappedBytes(channel, FileChannel.MapMode.READ_ONLY, channel.size());
+        }
+    }
+
+    /**
+     * Creates a file of the given length, or truncates an existing one, and maps it for writing.
+     */
+    static MappedBytes create(Path file, long length) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            return new MappedBytes(channel, FileChannel.MapMode.READ_WRITE, length);
+        }
+    }
+
+    long length() {
+        return length;
+    }
+
+    byte get(long position) {
+        return segments[(int) (position >>> SEGMENT_BITS)].get((int) (position & SEGMENT_MASK));
+    }
+
+    void put(long position, byte value) {
+        segments[(int) (position >>> SEGMENT_BITS)].put((int) (position & SEGMENT_MASK), value);
+    }
+
+    int getInt(long position) {
+        int value = 0;
+        for (int i = 0; i < Integer.BYTES; i++)
+            value = (value << 8) | (get(position + i) & 0xFF);
+        return value;
+    }
+
+    void putInt(long position, int value) {
+        for (int i = 0; i < Integer.BYTES; i++)
+            put(position + i, (byte) (value >>> (8 * (Integer.BYTES - 1 - i))));
+    }
+
+    /**
+     * Writes the changes back to the file.
+     */
+    void force() {
+        for (MappedByteBuffer segment : segments)
+            segment.force();
+    }
+}
@@ -0,0 +1,75 @@
+package com.checkers.models.engine;
+
+import com.checkers.models.Board;
+
+/**
+ * Square numbering and neighbour tables for the bitboard representation of the board.
+ * Only the 32 dark squares can hold a piece, so each of them is given an index from 0 to 31
+ * in row-major order (square = row * 4 + column / 2) and a position is stored as a set of
+ * 32-bit masks, one bit per square.
+ */
+public final class BitBoard {
+    public static final int SQUARES = 32;
+
+    /**
+     * Directions in the order the pieces have always generated their moves:
+     * down-left, down-right, up-right, up-left.
+     */
+    public static final int[][] DIRECTIONS = {{1, -1}, {1, 1}, {-1, 1}, {-1, -1}};
+    public static final int DOWN_LEFT = 0;
+    public static final int DOWN_RIGHT = 1;
+    public static final int UP_RIGHT = 2;
+    public static final int UP_LEFT = 3;
+
+    /**
+     * STEP[s][d] is the square next to s in direction d, or -1 when it is off the board.
+     */
+    public static final int[][] STEP = new int[SQUARES][DIRECTIONS.length];
+    /**
+     * JUMP[s][d] is the square two steps away from s in direction d, or -1 when it is off the board.
+     */
+    public static final int[][] JUMP = new int[SQUARES][DIRECTIONS.length];
+
+    static {
+        for (int s = 0; s < SQUARES; s++) {
+            for (int d = 0; d < DIRECTIONS.length; d++) {
+                int r = row(s), c = column(s);
+                STEP[s][d] = square(r + DIRECTIONS[d][0], c + DIRECTIONS[d][1]);
+                JUMP[s][d] = square(r + 2 * DIRECTIONS[d][0], c + 2 * DIRECTIONS[d][1]);
+            }
+        }
+    }
+
+    private BitBoard() {
+    }
+
+    /**
+     * Returns the square index of a row and column.
+     *
+     * @return the index between 0 and 31, or -1 if the coordinate is off the board or on a light square.
+     */
+    public static int square(int r, int c) {
+        if (r < 0 || r >= Board.BOARD_SIZE || c < 0 || c >= Board.BOARD_SIZE || (r + c) % 2 == 0) return -1;
+        return r * 4 + (c >> 1);
+    }
+
+    public static int row(int square) {
+        return square >> 2;
+    }
+
+    public static int column(int square) {
+        int r = square >> 2;
+        return ((square & 3) << 1) + ((r & 1) == 0 ? 1 : 0);
+    }
+
+    public static int bit(int square) {
+        return 1 << square;
+    }
+
+    /**
+     * Mask of the squares on the given row.
+     */
+    public static int rowMask(int r) {
+        return 0xF << (r * 4);
+    }
+}
@@ -0,0 +1,67 @@
+package com.checkers.models.engine;
+
+import com.checkers.models.Board;
+
+import java.util.Random;
+
+/**
+ * Reusable storage for the move lists of a search, one list per ply, so that generating
+ * moves at a node doesn't allocate. A search owns one buffer and passes the ply it is at.
+ */
+public final class MoveBuffer {
+    public static final int MAX_PLY = 128;
+
+    private final long[][] moves;
+    private final int[] sizes;
+
+    public MoveBuffer() {
+        this(MAX_PLY);
+    }
+
+    public MoveBuffer(int maxPly) {
+        this.moves = new long[maxPly][MoveGenerator.MAX_MOVES];
+        this.sizes = new int[maxPly];
+    }
+
+    /**
+     * Generates the moves of the player in turn on <code>board</code> into the list of the given ply.
+     *
+     * @return the number of moves generated
+     */
+    public int generate(Board board, int ply) {
+        sizes[ply] = board.generateMoves(moves[ply]);
+        return sizes[ply];
+    }
+
+    public int size(int ply) {
+        return sizes[ply];
+    }
+
+    public long get(int ply, int index) {
+        return moves[ply][index];
+    }
+
+    /**
+     * Returns the backing array of a ply, e.g. to reorder its moves in place.
+     */
+    public long[] moves(int ply) {
+        return moves[ply];
+    }
+
+    /**
+     * Puts the moves of a ply in a random order.
+     */
+    public void shuffle(int ply, Random random) {
+        long[] list = moves[ply];
+        for (int i = sizes[ply] - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            long tmp = list[i];
+            list[i] = list[j];
+            list[j] = tmp;
+        }
+    }
+
+    public int maxPly() {
+        return moves.length;
+    }
+}
@@ -0,0 +1,80 @@
+package com.checkers.models.engine;
+
+import com.checkers.models.move.Jump;
+import com.checkers.models.move.Move;
+import com.checkers.models.move.Position;
+
+/**
+ * Packs a move into a single primitive value so move lists can live in plain arrays.
+ * Bits 0-4 hold the origin square, bits 5-9 the destination square and bits 10-41 the
+ * mask of the squares whose pieces are captured. A move with no captured squares is a simple step.
+ */
+public final class MoveCodec {
+    public static final long NONE = -1;
+
+    private static final int SQUARE_BITS = 5;
+    private static final int SQUARE_MASK = (1 << SQUARE_BITS) - 1;
+
+    private MoveCodec() {
+    }
+
+    public static long encode(int from, int to, int captured) {
+        return from | (to << SQUARE_BITS) | ((captured & 0xFFFFFFFFL) << (2 * SQUARE_BITS));
+    }
+
+    public static int from(long move) {
+        return (int) (move & SQUARE_MASK);
+    }
+
+    public static int to(long move) {
+        return (int) ((move >>> SQUARE_BITS) & SQUARE_MASK);
+    }
+
+    public static int captured(long move) {
+        return (int) (move >>> (2 * SQUARE_BITS));
+    }
+
+    public static boolean isJump(long move) {
+        return captured(move) != 0;
+    }
+
+    /**
+     * Converts an encoded move to the Move/Jump objects used by the GUI and the network layer.
+     * The squares of a Jump are listed in ascending square order.
+     */
+    public static Move toMove(long move) {
+        Position origin = position(from(move));
+        Position destination = position(to(move));
+        int captured = captured(move);
+        if (captured == 0) return new Move(origin, destination);
+
+        Jump jump = new Jump(origin, destination);
+        for (; captured != 0; captured &= captured - 1)
+            jump.addToBeRemovedSquare(position(Integer.numberOfTrailingZeros(captured)));
+        return jump;
+    }
+
+    /**
+     * Encodes a Move or Jump object.
+     */
+    public static long fromMove(Move move) {
+        int captured = 0;
+        if (move instanceof Jump) {
+            for (Position p : ((Jump) move).toBeRemoved)
+                captured |= BitBoard.bit(BitBoard.square(p.getRow(), p.getColumn()));
+        }
+        return encode(square(move.getOrigin()), square(move.getDestination()), captured);
+    }
+
+    private static Position position(int square) {
+        return new Position(BitBoard.row(square), BitBoard.column(square));
+    }
+
+    private static int square(Position p) {
+        return BitBoard.square(p.getRow(), p.getColumn());
+    }
+
+    public static String toString(long move) {
+        return toMove(move).toString();
+    }
+}
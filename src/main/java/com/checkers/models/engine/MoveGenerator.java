@@ -0,0 +1,154 @@
+package com.checkers.models.engine;
+
+import com.checkers.models.piece.Piece;
+
+/**
+ * Generates legal moves straight from the piece masks into a caller owned <code>long[]</code>
+ * of encoded moves (see {@link MoveCodec}). Nothing is allocated and no board is copied.
+ * Jumps are mandatory: when any piece can jump only jumps are returned, and a jump is only
+ * returned once it can't be extended any further.
+ */
+public final class MoveGenerator {
+    /**
+     * Upper bound on the number of moves a position can have, used to size move arrays.
+     */
+    public static final int MAX_MOVES = 128;
+
+    private static final int[] KING_DIRECTIONS = {BitBoard.DOWN_LEFT, BitBoard.DOWN_RIGHT, BitBoard.UP_RIGHT, BitBoard.UP_LEFT};
+    private static final int[] PLAYER1_PAWN_DIRECTIONS = {BitBoard.UP_LEFT, BitBoard.UP_RIGHT};
+    private static final int[] PLAYER2_PAWN_DIRECTIONS = {BitBoard.DOWN_LEFT, BitBoard.DOWN_RIGHT};
+
+    private MoveGenerator() {
+    }
+
+    /**
+     * Writes all the moves of a player into <code>moves</code>.
+     *
+     * @param owner the player to move
+     * @param pawns mask of the player's pawns
+     * @param kings mask of the player's kings
+     * @param enemy mask of the opponent's pieces
+     * @param moves the array the encoded moves are written to, starting at index 0
+     * @return the number of moves written
+     */
+    public static int generate(Piece.PieceOwner owner, int pawns, int kings, int enemy, long[] moves) {
+        int own = pawns | kings;
+        int count = 0;
+        for (int pieces = own; pieces != 0; pieces &= pieces - 1) {
+            int from = Integer.numberOfTrailingZeros(pieces);
+            count = jumps(from, directions(owner, kings, from), own | enemy, enemy, moves, count);
+        }
+        if (count != 0) return count;
+
+        for (int pieces = own; pieces != 0; pieces &= pieces - 1) {
+            int from = Integer.numberOfTrailingZeros(pieces);
+            count = steps(from, directions(owner, kings, from), own | enemy, moves, count);
+        }
+        return count;
+    }
+
+    /**
+     * Writes the moves of the single piece on <code>square</code>: its jumps if it has any, its steps otherwise.
+     * Whether another piece of the same player has to jump is not taken into account.
+     *
+     * @return the number of moves written
+     */
+    public static int generate(Piece.PieceOwner owner, int square, int pawns, int kings, int enemy, long[] moves) {
+        int own = pawns | kings;
+        if ((own & BitBoard.bit(square)) == 0) return 0;
+
+        int[] directions = directions(owner, kings, square);
+        int count = jumps(square, directions, own | enemy, enemy, moves, 0);
+        if (count != 0) return count;
+        return steps(square, directions, own | enemy, moves, 0);
+    }
+
+    /**
+     * Tells whether a player has at least one move, stopping at the first one found. Nothing is written.
+     */
+    public static boolean hasMove(Piece.PieceOwner owner, int pawns, int kings, int enemy) {
+        int own = pawns | kings;
+        int occupied = own | enemy;
+        for (int pieces = own; pieces != 0; pieces &= pieces - 1) {
+            int from = Integer.numberOfTrailingZeros(pieces);
+            for (int d : directions(owner, kings, from)) {
+                int to = BitBoard.STEP[from][d];
+                if (to < 0) continue;
+                if ((occupied & BitBoard.bit(to)) == 0) return true;
+
+                int landing = BitBoard.JUMP[from][d];
+                if (landing >= 0 && (enemy & BitBoard.bit(to)) != 0 && (occupied & BitBoard.bit(landing)) == 0)
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Counts the steps and single jumps a player's pieces could make, without taking into account that jumps are
+     * mandatory or following multiple jumps. A cheap measure of how free a player is to move.
+     */
+    public static int countMobility(Piece.PieceOwner owner, int pawns, int kings, int enemy) {
+        int own = pawns | kings;
+        int occupied = own | enemy;
+        int count = 0;
+        for (int pieces = own; pieces != 0; pieces &= pieces - 1) {
+            int from = Integer.numberOfTrailingZeros(pieces);
+            for (int d : directions(owner, kings, from)) {
+                int to = BitBoard.STEP[from][d];
+                if (to < 0) continue;
+                if ((occupied & BitBoard.bit(to)) == 0) {
+                    count++;
+                    continue;
+                }
+                int landing = BitBoard.JUMP[from][d];
+                if (landing >= 0 && (enemy & BitBoard.bit(to)) != 0 && (occupied & BitBoard.bit(landing)) == 0)
+                    count++;
+            }
+        }
+        return count;
+    }
+
+    private static int[] directions(Piece.PieceOwner owner, int kings, int square) {
+        if ((kings & BitBoard.bit(square)) != 0) return KING_DIRECTIONS;
+        return (owner == Piece.PieceOwner.PLAYER1) ? PLAYER1_PAWN_DIRECTIONS : PLAYER2_PAWN_DIRECTIONS;
+    }
+
+    private static int steps(int from, int[] directions, int occupied, long[] moves, int count) {
+        for (int d : directions) {
+            int to = BitBoard.STEP[from][d];
+            if (to >= 0 && (occupied & BitBoard.bit(to)) == 0 && count < moves.length)
+                moves[count++] = MoveCodec.encode(from, to, 0);
+        }
+        return count;
+    }
+
+    private static int jumps(int from, int[] directions, int occupied, int enemy, long[] moves, int count) {
+        return extendJump(from, from, 0, 0, directions, occupied, enemy, moves, count);
+    }
+
+    /**
+     * Depth first search over the jump sequences starting at <code>origin</code>. The moving piece stays on its
+     * origin and jumped pieces stay on the board until the move is made, and a sequence can't land twice on
+     * the same square, so no piece can be captured twice.
+     */
+    private static int extendJump(int origin, int at, int captured, int visited, int[] directions,
+                                  int occupied, int enemy, long[] moves, int count) {
+        boolean extended = false;
+        for (int d : directions) {
+            int to = BitBoard.JUMP[at][d];
+            if (to < 0) continue;
+
+            int over = BitBoard.bit(BitBoard.STEP[at][d]);
+            int landing = BitBoard.bit(to);
+            if ((enemy & over) == 0 || (captured & over) != 0) continue;
+            if ((occupied & landing) != 0 || (visited & landing) != 0) continue;
+
+            extended = true;
+            count = extendJump(origin, to, captured | over, visited | landing, directions, occupied, enemy, moves, count);
+        }
+        if (!extended && at != origin && count < moves.length)
+            moves[count++] = MoveCodec.encode(origin, at, captured);
+        return count;
+    }
+}
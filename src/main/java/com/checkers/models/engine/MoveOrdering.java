@@ -0,0 +1,123 @@
+package com.checkers.models.engine;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Orders the moves of a search so that alpha-beta meets the best ones first. Moves are tried in this order:
+ * the move the transposition table remembers for the position, captures taking more pieces, the two killer
+ * moves of the ply (quiet moves that last caused a cutoff at the same depth of the tree), then quiet moves by
+ * their history score, which grows each time the same origin and destination cause a cutoff.
+ * <p>
+ * Killers and history are learnt during a search, so each search thread owns its own ordering.
+ * </p>
+ */
+public final class MoveOrdering {
+    private static final int HASH_MOVE = Integer.MAX_VALUE;
+    private static final int CAPTURE_SHIFT = 24; // score of a capture: pieces taken << CAPTURE_SHIFT
+    private static final int FIRST_KILLER = 2 << 22;
+    private static final int SECOND_KILLER = 1 << 22;
+    private static final int MAX_HISTORY = (1 << 22) - 1;
+    private static final int FROM_TO = 0x3FF; // origin and destination bits of an encoded move
+
+    private final long[][] killers;
+    private final int[] history = new int[BitBoard.SQUARES * BitBoard.SQUARES];
+    private final int[] scores = new int[MoveGenerator.MAX_MOVES];
+
+    public MoveOrdering() {
+        this(MoveBuffer.MAX_PLY);
+    }
+
+    public MoveOrdering(int maxPly) {
+        this.killers = new long[maxPly][2];
+        this.newSearch();
+    }
+
+    /**
+     * Forgets the killers of the last search and halves the history scores, so that what was learnt in older
+     * positions weighs less.
+     */
+    public void newSearch() {
+        for (long[] killer : killers) {
+            killer[0] = MoveCodec.NONE;
+            killer[1] = MoveCodec.NONE;
+        }
+        for (int i = 0; i < history.length; i++)
+            history[i] >>= 1;
+    }
+
+    /**
+     * Forgets the killers and the history altogether, e.g. so that a search task orders its moves the same way
+     * whichever thread it runs on.
+     */
+    public void clear() {
+        for (long[] killer : killers) {
+            killer[0] = MoveCodec.NONE;
+            killer[1] = MoveCodec.NONE;
+        }
+        Arrays.fill(history, 0);
+    }
+
+    /**
+     * Sorts the moves of a ply, best first.
+     *
+     * @param hashMove the encoded move stored in the transposition table, captured squares included, or
+     *                 {@link MoveCodec#NONE}
+     * @param random   if not null, moves with the same score are put in a random order
+     */
+    public void order(MoveBuffer buffer, int ply, long hashMove, Random random) {
+        if (random != null)
+            buffer.shuffle(ply, random);
+
+        long[] moves = buffer.moves(ply);
+        int count = buffer.size(ply);
+        long[] killer = killers[ply];
+        for (int i = 0; i < count; i++) {
+            long move = moves[i];
+            int score;
+            int captured = MoveCodec.captured(move);
+            if (move == hashMove)
+                score = HASH_MOVE;
+            else if (captured != 0)
+                score = Integer.bitCount(captured) << CAPTURE_SHIFT;
+            else if (move == killer[0])
+                score = FIRST_KILLER;
+            else if (move == killer[1])
+                score = SECOND_KILLER;
+            else
+                score = history[(int) (move & FROM_TO)];
+
+            // insertion sort, stable so that the shuffle still decides between equal scores
+            int j = i;
+            while (j > 0 && scores[j - 1] < score) {
+                scores[j] = scores[j - 1];
+                moves[j] = moves[j - 1];
+                j--;
+            }
+            scores[j] = score;
+            moves[j] = move;
+        }
+    }
+
+    /**
+     * Learns from a move that caused a cutoff. Captures are left out, they are ordered first anyway.
+     *
+     * @param depth the depth left at the node, deeper cutoffs count more
+     */
+    public void cutoff(int ply, long move, int depth) {
+        if (MoveCodec.captured(move) != 0)
+            return;
+        long[] killer = killers[ply];
+        if (killer[0] != move) {
+            killer[1] = killer[0];
+            killer[0] = move;
+        }
+
+        int index = (int) (move & FROM_TO);
+        history[index] += depth * depth;
+        if (history[index] > MAX_HISTORY) {
+            for (int i = 0; i < history.length; i++)
+                history[i] >>= 1;
+        }
+    }
+}
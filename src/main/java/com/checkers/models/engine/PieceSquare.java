@@ -0,0 +1,60 @@
+package com.checkers.models.engine;
+
+import com.checkers.models.Board;
+
+/**
+ * Piece-square values used for the positional score a {@link Board} keeps up to date as moves are made.
+ * A value packs two counts: the advancement of a pawn, the number of rows it has moved towards its crowning row,
+ * in the low bits, and the centralization of any piece, the number of steps it stands away from the nearest edges
+ * of the board, from {@link #CENTER_SHIFT} up. Both counts are never negative and stay far below 2^16 over a whole
+ * side, so packed values can be added and subtracted as plain ints and still be unpacked by {@link #advancement}
+ * and {@link #center}. Kinds are indexed like the keys of {@link Zobrist}.
+ */
+public final class PieceSquare {
+    public static final int CENTER_SHIFT = 16;
+    private static final int ADVANCEMENT_MASK = (1 << CENTER_SHIFT) - 1;
+
+    /**
+     * VALUE[kind][square] is the packed value of a piece of the given kind standing on the square.
+     */
+    public static final int[][] VALUE = new int[4][BitBoard.SQUARES];
+
+    static {
+        int last = Board.BOARD_SIZE - 1;
+        for (int s = 0; s < BitBoard.SQUARES; s++) {
+            int r = BitBoard.row(s), c = BitBoard.column(s);
+            int center = (Math.min(r, last - r) + Math.min(c, last - c)) << CENTER_SHIFT;
+            VALUE[Zobrist.PLAYER1_PAWN][s] = (last - r) | center; // player one crowns on row 0
+            VALUE[Zobrist.PLAYER2_PAWN][s] = r | center;
+            VALUE[Zobrist.PLAYER1_KING][s] = center;
+            VALUE[Zobrist.PLAYER2_KING][s] = center;
+        }
+    }
+
+    private PieceSquare() {
+    }
+
+    /**
+     * Adds up the values of a kind of piece on every square of a mask.
+     */
+    public static int sum(int kind, int mask) {
+        int sum = 0;
+        for (; mask != 0; mask &= mask - 1)
+            sum += VALUE[kind][Integer.numberOfTrailingZeros(mask)];
+        return sum;
+    }
+
+    /**
+     * Returns the advancement part of a sum of values.
+     */
+    public static int advancement(int score) {
+        return score & ADVANCEMENT_MASK;
+    }
+
+    /**
+     * Returns the centralization part of a sum of values.
+     */
+    public static int center(int score) {
+        return score >>> CENTER_SHIFT;
+    }
+}
@@ -0,0 +1,269 @@
+package com.checkers.models.engine;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts what the searches of a player did: nodes, cutoffs, transposition table probes, playouts and how deep they
+ * went. Each search thread counts in {@link Counters} of its own, in plain longs no other thread writes, and the
+ * counts of all threads are only added up when they are read. They can be read once a move has been made, until
+ * the next search starts, or while a search runs, when they are only approximate. A player pondering on the
+ * opponent's time shows the counts of the ponder search.
+ * <p>
+ * The statistics are an MBean: {@link #register(String)} shows them in JMX tools such as JConsole.
+ * </p>
+ */
+public final class SearchStatistics implements SearchStatisticsMBean {
+    public static final String DOMAIN = "com.checkers";
+    private static final AtomicInteger ids = new AtomicInteger();
+
+    /**
+     * The counts of one search thread. Only that thread writes them.
+     */
+    public static final class Counters {
+        public long nodes;
+        public long quiescenceNodes;
+        public int maxPly;           // the deepest ply reached, past the horizon included
+        public long cutoffs;
+        public long firstMoveCutoffs; // cutoffs by the first move searched at a node
+        public long tableProbes;
+        public long tableHits;
+        public long playouts;
+
+        void reset() {
+            nodes = quiescenceNodes = cutoffs = firstMoveCutoffs = tableProbes = tableHits = playouts = 0;
+            maxPly = 0;
+        }
+    }
+
+    private final List<Counters> counters = new CopyOnWriteArrayList<>();
+    private volatile long startNanos;
+    private volatile long endNanos; // 0 while the search runs
+    private volatile int depth;
+    private ObjectName objectName;
+
+    /**
+     * Returns new counters for a search thread, included in the statistics until they are released.
+     */
+    public Counters newCounters() {
+        Counters threadCounters = new Counters();
+        counters.add(threadCounters);
+        return threadCounters;
+    }
+
+    /**
+     * Leaves counters out of the statistics, e.g. those of a thread that was shut down.
+     */
+    public void release(Counters threadCounters) {
+        counters.remove(threadCounters);
+    }
+
+    /**
+     * Resets the counters of every thread when a search starts. The search threads mustn't be counting yet.
+     */
+    public void start() {
+        for (Counters threadCounters : counters)
+            threadCounters.reset();
+        depth = 0;
+        endNanos = 0;
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Marks the end of the search, for the rates per second.
+     */
+    public void stop() {
+        endNanos = System.nanoTime();
+    }
+
+    /**
+     * Sets the depth the search got to: the depth of a fixed depth search, or the last iteration that finished.
+     */
+    public void setDepth(int depth) {
+        this.depth = depth;
+    }
+
+    /**
+     * Publishes the statistics on the platform MBean server, named after the player. A number is added to the name
+     * so that players of the same name can both be published.
+     *
+     * @return the name the statistics were published under
+     */
+    public synchronized ObjectName register(String playerName) {
+        this.unregister();
+        try {
+            ObjectName name = new ObjectName(DOMAIN + ":type=SearchStatistics,name=" + ObjectName.quote(playerName)
+                    + ",id=" + ids.incrementAndGet());
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            objectName = name;
+            return name;
+        } catch (JMException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Takes the statistics off the MBean server, e.g. once the game is over. Nothing happens if they aren't on it.
+     */
+    public synchronized void unregister() {
+        if (objectName == null)
+            return;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (server.isRegistered(objectName))
+                server.unregisterMBean(objectName);
+        } catch (JMException e) {
+            throw new RuntimeException(e);
+        }
+        objectName = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return startNanos != 0 && endNanos == 0;
+    }
+
+    @Override
+    public long getElapsedMillis() {
+        if (startNanos == 0)
+            return 0;
+        long end = (endNanos == 0) ? System.nanoTime() : endNanos;
+        return (end - startNanos) / 1_000_000;
+    }
+
+    private double seconds() {
+        if (startNanos == 0)
+            return 0;
+        long end = (endNanos == 0) ? System.nanoTime() : endNanos;
+        return Math.max(end - startNanos, 1) / 1e9;
+    }
+
+    @Override
+    public long getNodes() {
+        long sum = 0;
+        for (Counters threadCounters : counters)
+            sum += threadCounters.nodes;
+        return sum;
+    }
+
+    @Override
+    public long getQuiescenceNodes() {
+        long sum = 0;
+        for (Counters threadCounters : counters)
+            sum += threadCounters.quiescenceNodes;
+        return sum;
+    }
+
+    /**
+     * Returns the nodes searched per second over all threads, the quiescence nodes left out.
+     */
+    @Override
+    public double getNodesPerSecond() {
+        double seconds = this.seconds();
+        return (seconds == 0) ? 0 : getNodes() / seconds;
+    }
+
+    @Override
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Returns the deepest ply any thread reached, including the plies past the horizon.
+     */
+    @Override
+    public int getMaxPly() {
+        int max = 0;
+        for (Counters threadCounters : counters)
+            max = Math.max(max, threadCounters.maxPly);
+        return max;
+    }
+
+    /**
+     * Returns the number of moves a uniform tree of the search depth would have at each node to hold the nodes
+     * searched, i.e. the nodes to the power of one over the depth.
+     */
+    @Override
+    public double getEffectiveBranchingFactor() {
+        long nodes = getNodes();
+        return (depth == 0 || nodes == 0) ? 0 : Math.pow(nodes, 1.0 / depth);
+    }
+
+    @Override
+    public long getCutoffs() {
+        long sum = 0;
+        for (Counters threadCounters : counters)
+            sum += threadCounters.cutoffs;
+        return sum;
+    }
+
+    @Override
+    public long getFirstMoveCutoffs() {
+        long sum = 0;
+        for (Counters threadCounters : counters)
+            sum += threadCounters.firstMoveCutoffs;
+        return sum;
+    }
+
+    /**
+     * Returns the share of cutoffs made by the first move searched, a measure of the move ordering.
+     */
+    @Override
+    public double getFirstMoveCutoffRate() {
+        long cutoffs = getCutoffs();
+        return (cutoffs == 0) ? 0 : (double) getFirstMoveCutoffs() / cutoffs;
+    }
+
+    @Override
+    public long getTableProbes() {
+        long sum = 0;
+        for (Counters threadCounters : counters)
+            sum += threadCounters.tableProbes;
+        return sum;
+    }
+
+    @Override
+    public long getTableHits() {
+        long sum = 0;
+        for (Counters threadCounters : counters)
+            sum += threadCounters.tableHits;
+        return sum;
+    }
+
+    @Override
+    public double getTableHitRate() {
+        long probes = getTableProbes();
+        return (probes == 0) ? 0 : (double) getTableHits() / probes;
+    }
+
+    /**
+     * Returns the number of games simulated by a Monte Carlo search.
+     */
+    @Override
+    public long getPlayouts() {
+        long sum = 0;
+        for (Counters threadCounters : counters)
+            sum += threadCounters.playouts;
+        return sum;
+    }
+
+    @Override
+    public double getPlayoutsPerSecond() {
+        double seconds = this.seconds();
+        return (seconds == 0) ? 0 : getPlayouts() / seconds;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SearchStatistics[%d ms, %d nodes, %d qnodes, %.0f nps, depth %d, max ply %d, ebf %.2f, "
+                        + "%.1f%% first move cutoffs, %d/%d table hits, %d playouts, %.0f playouts/s]",
+                getElapsedMillis(), getNodes(), getQuiescenceNodes(), getNodesPerSecond(), getDepth(), getMaxPly(),
+                getEffectiveBranchingFactor(), 100 * getFirstMoveCutoffRate(), getTableHits(), getTableProbes(),
+                getPlayouts(), getPlayoutsPerSecond());
+    }
+}
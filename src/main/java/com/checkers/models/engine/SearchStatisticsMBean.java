@@ -0,0 +1,38 @@
+package com.checkers.models.engine;
+
+/**
+ * What JMX shows of the {@link SearchStatistics} of a player: the counts of its last search, or of the one running.
+ */
+public interface SearchStatisticsMBean {
+    boolean isRunning();
+
+    long getElapsedMillis();
+
+    long getNodes();
+
+    long getQuiescenceNodes();
+
+    double getNodesPerSecond();
+
+    int getDepth();
+
+    int getMaxPly();
+
+    double getEffectiveBranchingFactor();
+
+    long getCutoffs();
+
+    long getFirstMoveCutoffs();
+
+    double getFirstMoveCutoffRate();
+
+    long getTableProbes();
+
+    long getTableHits();
+
+    double getTableHitRate();
+
+    long getPlayouts();
+
+    double getPlayoutsPerSecond();
+}
@@ -0,0 +1,180 @@
+package com.checkers.models.engine;
+
+/**
+ * Decides how long a search may take and tells it when to stop. A search has two budgets: past the soft one no new
+ * iteration of an iterative deepening search is started, past the hard one the search stops wherever it is. The
+ * budgets are either a fixed time per move or a share of the time left on a game clock.
+ * <p>
+ * Searches call {@link #shouldStop()} at every node. It only reads the clock every {@link #DEFAULT_CHECK_INTERVAL}
+ * calls, and {@link #stop()} makes it return true at once, from any thread. Threads of the same search may share a
+ * time manager: the count of calls between clock reads is then only approximate.
+ * </p>
+ */
+public final class TimeManager {
+    public static final long DEFAULT_MOVE_MILLIS = 5000;
+    public static final int DEFAULT_CHECK_INTERVAL = 1024;
+    /**
+     * Moves a player is expected to make in a game, to share out the time left on the clock.
+     */
+    static final int EXPECTED_MOVES = 40;
+    static final int MIN_MOVES_TO_GO = 10;
+    static final int HARD_FACTOR = 3;      // the hard budget is at most this many times the soft one
+    static final int HARD_SHARE = 3;       // ... and at most this part of the time left
+    static final long OVERHEAD_MILLIS = 50; // kept aside on every move for what happens around the search
+
+    private final int checkInterval;
+    private long moveMillis = DEFAULT_MOVE_MILLIS;
+    private long remainingMillis = -1; // -1 when there is no game clock
+    private long incrementMillis;
+    private int moveNumber;
+
+    private long start;
+    private volatile long softDeadline; // volatile: a ponder hit sets them while the search runs
+    private volatile long hardDeadline;
+    private int countdown;
+    private volatile boolean stopped;
+
+    public TimeManager() {
+        this(DEFAULT_CHECK_INTERVAL);
+    }
+
+    /**
+     * @param checkInterval the number of calls to {@link #shouldStop()} between two reads of the clock
+     */
+    public TimeManager(int checkInterval) {
+        if (checkInterval < 1) throw new IllegalArgumentException("The clock must be read at least every call.");
+        this.checkInterval = checkInterval;
+    }
+
+    /**
+     * Gives every move the same time, both budgets being that time. This is the default, with 5 seconds.
+     */
+    public void setMoveTime(long millis) {
+        this.moveMillis = millis;
+        this.remainingMillis = -1;
+    }
+
+    /**
+     * Shares the time left on a game clock out between the moves still to come. Called before each move with the
+     * state of the clock.
+     *
+     * @param remainingMillis the time the player has left
+     * @param incrementMillis the time added to the clock after each move
+     * @param moveNumber      the number of moves the player has made in the game so far
+     */
+    public void setGameTime(long remainingMillis, long incrementMillis, int moveNumber) {
+        this.remainingMillis = remainingMillis;
+        this.incrementMillis = incrementMillis;
+        this.moveNumber = moveNumber;
+    }
+
+    /**
+     * Starts the clock of a new search and works out its budgets.
+     */
+    public void start() {
+        start = System.nanoTime();
+        this.setBudgets(start);
+        countdown = checkInterval;
+        stopped = false;
+    }
+
+    /**
+     * Starts the clock of a search made on the opponent's time. It has no budget, only {@link #stop()} ends it,
+     * until the opponent plays the move it was made for and {@link #ponderHit()} is called.
+     */
+    public void startPondering() {
+        start = System.nanoTime();
+        softDeadline = start + Long.MAX_VALUE;
+        hardDeadline = start + Long.MAX_VALUE;
+        countdown = checkInterval;
+        stopped = false;
+    }
+
+    /**
+     * Turns a search started by {@link #startPondering()} into a normal one. Its budgets count from when pondering
+     * started, so the time the opponent took counts toward the move, and a long ponder ends at once.
+     */
+    public void ponderHit() {
+        this.setBudgets(start);
+    }
+
+    private void setBudgets(long from) {
+        long soft, hard;
+        if (remainingMillis < 0) {
+            soft = hard = moveMillis;
+        } else {
+            long available = Math.max(remainingMillis - OVERHEAD_MILLIS, 0);
+            int movesToGo = Math.max(EXPECTED_MOVES - moveNumber, MIN_MOVES_TO_GO);
+            soft = available / movesToGo + incrementMillis * 3 / 4;
+            hard = Math.min(soft * HARD_FACTOR, available / HARD_SHARE + incrementMillis);
+            hard = Math.min(hard, available);
+            soft = Math.min(soft, hard);
+        }
+        softDeadline = from + soft * 1_000_000;
+        hardDeadline = from + hard * 1_000_000;
+    }
+
+    /**
+     * Stops the running search as soon as it next asks, e.g. because the game was closed or the opponent moved.
+     * The search stays stopped until the next {@link #start()}.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Tells whether the search was stopped, by {@link #stop()} or because the hard budget ran out.
+     */
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Called at every node: tells whether the search has to stop, reading the clock only now and then.
+     */
+    public boolean shouldStop() {
+        if (stopped)
+            return true;
+        if (--countdown > 0)
+            return false;
+        countdown = checkInterval;
+        return isHardTimeUp();
+    }
+
+    /**
+     * Reads the clock and tells whether the hard budget has run out, stopping the search if so.
+     */
+    public boolean isHardTimeUp() {
+        if (!stopped && System.nanoTime() - hardDeadline >= 0)
+            stopped = true;
+        return stopped;
+    }
+
+    /**
+     * Reads the clock and tells whether the soft budget has run out, so that no new iteration should be started.
+     */
+    public boolean isSoftTimeUp() {
+        return stopped || System.nanoTime() - softDeadline >= 0;
+    }
+
+    /**
+     * Returns the time since the search started, in nanoseconds.
+     */
+    public long elapsedNanos() {
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Returns the hard budget of the search, in milliseconds.
+     */
+    public long getHardBudgetMillis() {
+        return (hardDeadline - start) / 1_000_000;
+    }
+
+    /**
+     * Returns the soft budget of the search, in milliseconds.
+     */
+    public long getSoftBudgetMillis() {
+        return (softDeadline - start) / 1_000_000;
+    }
+}
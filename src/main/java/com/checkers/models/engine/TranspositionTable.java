@@ -0,0 +1,200 @@
+package com.checkers.models.engine;
+
+import java.util.Arrays;
+
+/**
+ * Fixed size hash table of search results keyed by {@link com.checkers.models.Board#hash()}, so that a
+ * position reached again through a different move order doesn't have to be searched again.
+ * <p>
+ * The table holds a power of two number of buckets of two entries each. The first entry of a bucket keeps the
+ * deepest result (it is only replaced by a result at least as deep, or one left over from an earlier search),
+ * the second one always takes the newest result. An entry is the score, a data word packing the searched depth,
+ * the bound type, the best move and the search it was stored in, and a check word.
+ * </p>
+ * <p>
+ * The table can be shared by several search threads without locking: the check word is the key xor the other two
+ * words, so an entry torn by two threads writing it at the same time no longer matches its key and reads as a miss.
+ * </p>
+ * <p>
+ * The table doesn't count its probes: each search thread does, in its {@link SearchStatistics.Counters}.
+ * </p>
+ */
+public class TranspositionTable {
+    public static final int DEFAULT_SIZE_MB = 4;
+
+    /**
+     * The score is the exact value of the position.
+     */
+    public static final int EXACT = 1;
+    /**
+     * The search failed high, the value of the position is at least the score.
+     */
+    public static final int LOWER = 2;
+    /**
+     * The search failed low, the value of the position is at most the score.
+     */
+    public static final int UPPER = 3;
+
+    private static final int ENTRY_BYTES = 3 * Long.BYTES;
+    private static final int BUCKET_SIZE = 2;
+
+    // Layout of a data word
+    private static final int BOUND_SHIFT = 8;
+    private static final int MOVE_SHIFT = 10;
+    private static final int AGE_SHIFT = 21;
+    private static final int CAPTURED_SHIFT = 29;
+    private static final long MOVE_MASK = (1L << 11) - 1;
+    private static final long AGE_MASK = (1L << 8) - 1;
+
+    private final long[] checks;
+    private final long[] data;
+    private final long[] scores;
+    private final int bucketMask;
+    private volatile int age;
+
+    /**
+     * A decoded entry, filled in by {@link #probe(long, Entry)}.
+     */
+    public static final class Entry {
+        public double score;
+        public int depth;
+        public int bound;
+        /**
+         * Origin and destination squares of the best move, as in the low ten bits of an encoded move,
+         * or -1 if the entry has no move.
+         */
+        public int move;
+        /**
+         * Captured squares of the best move, as in an encoded move, which tells apart jumps between the same
+         * squares that take different pieces.
+         */
+        public int captured;
+
+        /**
+         * Returns the best move, encoded, or {@link MoveCodec#NONE} if the entry has no move.
+         */
+        public long bestMove() {
+            return (move < 0) ? MoveCodec.NONE : MoveCodec.encode(move & 0x1F, move >>> 5, captured);
+        }
+    }
+
+    public TranspositionTable() {
+        this(DEFAULT_SIZE_MB);
+    }
+
+    /**
+     * Creates a table using at most the given amount of memory.
+     *
+     * @param sizeInMB size of the table in megabytes, rounded down to a power of two number of buckets
+     */
+    public TranspositionTable(int sizeInMB) {
+        if (sizeInMB < 1) throw new IllegalArgumentException("Transposition table size must be at least 1 MB.");
+
+        long buckets = Long.highestOneBit((long) sizeInMB * 1024 * 1024 / (ENTRY_BYTES * BUCKET_SIZE));
+        buckets = Math.min(buckets, 1L << 29); // keep the arrays addressable with an int
+        this.checks = new long[(int) buckets * BUCKET_SIZE];
+        this.data = new long[(int) buckets * BUCKET_SIZE];
+        this.scores = new long[(int) buckets * BUCKET_SIZE];
+        this.bucketMask = (int) buckets - 1;
+    }
+
+    /**
+     * Marks the start of a new search. Entries stored by earlier searches are still used but are
+     * replaced before the deeper entries of the current one.
+     */
+    public void newSearch() {
+        age = (age + 1) & (int) AGE_MASK;
+    }
+
+    /**
+     * Looks a position up.
+     *
+     * @param hash  the Zobrist hash of the position
+     * @param entry filled in with the entry of the position when it is found
+     * @return whether the position is in the table
+     */
+    public boolean probe(long hash, Entry entry) {
+        int index = index(hash);
+        for (int i = index; i < index + BUCKET_SIZE; i++) {
+            long word = data[i];
+            long score = scores[i];
+            if (word != 0 && (checks[i] ^ word ^ score) == hash) {
+                entry.score = Double.longBitsToDouble(score);
+                entry.depth = (int) (word & 0xFF);
+                entry.bound = (int) ((word >>> BOUND_SHIFT) & 3);
+                long move = (word >>> MOVE_SHIFT) & MOVE_MASK;
+                entry.move = (move == 0) ? -1 : (int) (move & 0x3FF);
+                entry.captured = (int) (word >>> CAPTURED_SHIFT);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Stores the result of searching a position.
+     *
+     * @param hash  the Zobrist hash of the position
+     * @param depth the depth the position was searched to
+     * @param score the score found
+     * @param bound EXACT, LOWER or UPPER
+     * @param move  the best move found, or {@link MoveCodec#NONE}
+     */
+    public void store(long hash, int depth, double score, int bound, long move) {
+        int index = index(hash);
+        long word = encode(depth, bound, move);
+        long scoreBits = Double.doubleToRawLongBits(score);
+
+        long deepest = data[index];
+        if (deepest == 0 || depth >= (int) (deepest & 0xFF) || age(deepest) != age
+                || (checks[index] ^ deepest ^ scores[index]) == hash) {
+            write(index, hash, word, scoreBits);
+        } else {
+            write(index + 1, hash, word, scoreBits);
+        }
+    }
+
+    private void write(int i, long hash, long word, long scoreBits) {
+        checks[i] = hash ^ word ^ scoreBits;
+        data[i] = word;
+        scores[i] = scoreBits;
+    }
+
+    private long encode(int depth, int bound, long move) {
+        long moveBits = (move == MoveCodec.NONE) ? 0 : ((move & 0x3FF) | 0x400);
+        return Math.min(Math.max(depth, 0), 255)
+                | ((long) bound << BOUND_SHIFT)
+                | (moveBits << MOVE_SHIFT)
+                | ((long) age << AGE_SHIFT)
+                | ((move == MoveCodec.NONE) ? 0 : (long) MoveCodec.captured(move) << CAPTURED_SHIFT);
+    }
+
+    private int index(long hash) {
+        return ((int) (hash ^ (hash >>> 32)) & bucketMask) * BUCKET_SIZE;
+    }
+
+    private static int age(long word) {
+        return (int) ((word >>> AGE_SHIFT) & AGE_MASK);
+    }
+
+    /**
+     * Removes every entry.
+     */
+    public void clear() {
+        Arrays.fill(checks, 0);
+        Arrays.fill(data, 0);
+        Arrays.fill(scores, 0);
+    }
+
+    /**
+     * Returns the number of entries the table can hold.
+     */
+    public int capacity() {
+        return data.length;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TranspositionTable[%d entries]", capacity());
+    }
+}
@@ -0,0 +1,56 @@
+package com.checkers.models.engine;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random keys for Zobrist hashing of positions. The hash of a position is the XOR of the key of
+ * every piece on its square, plus <code>SIDE</code> when player two is to move, so making a move
+ * only needs a few XORs to update it. The keys come from a fixed seed so that hashes stay the
+ * same between runs and can be stored in files.
+ */
+public final class Zobrist {
+    public static final int PLAYER1_PAWN = 0;
+    public static final int PLAYER1_KING = 1;
+    public static final int PLAYER2_PAWN = 2;
+    public static final int PLAYER2_KING = 3;
+
+    /**
+     * PIECE[kind][square] is the key of a piece of the given kind standing on the square.
+     */
+    public static final long[][] PIECE = new long[4][BitBoard.SQUARES];
+    public static final long SIDE;
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5DEECE66DL);
+        for (long[] keys : PIECE) {
+            for (int s = 0; s < keys.length; s++)
+                keys[s] = random.nextLong();
+        }
+        SIDE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * Computes the hash of a position from scratch.
+     */
+    public static long hash(int player1Pawns, int player1Kings, int player2Pawns, int player2Kings, boolean player2ToMove) {
+        long hash = player2ToMove ? SIDE : 0;
+        hash ^= hash(PLAYER1_PAWN, player1Pawns);
+        hash ^= hash(PLAYER1_KING, player1Kings);
+        hash ^= hash(PLAYER2_PAWN, player2Pawns);
+        hash ^= hash(PLAYER2_KING, player2Kings);
+        return hash;
+    }
+
+    /**
+     * XOR of the keys of a kind of piece on every square of a mask.
+     */
+    public static long hash(int kind, int mask) {
+        long hash = 0;
+        for (; mask != 0; mask &= mask - 1)
+            hash ^= PIECE[kind][Integer.numberOfTrailingZeros(mask)];
+        return hash;
+    }
+}
@@ -1,13 +1,9 @@
 package com.checkers.models.piece;
 
-
-import com.checkers.models.Board;
-import com.checkers.models.move.Jump;
-import com.checkers.models.move.Move;
-import com.checkers.models.move.Position;
-
-import java.util.ArrayList;
-
+/**
+ * A piece as the GUI and the Piece based view of {@link com.checkers.models.Board} see it. Moves are generated on
+ * the bitboards by {@link com.checkers.models.engine.MoveGenerator}.
+ */
 public abstract class Piece implements Cloneable {
     public enum PieceOwner {PLAYER1, PLAYER2}
 
@@ -17,52 +13,6 @@ public abstract class Piece implements Cloneable {
         this.owner= owner;
     }
 
-
-    /**
-     * Finds all possible moves and jumps from the position in one-step range.
-     * First we set the proper movement direction for each piece. After that we iterate
-     * through each movement direction and check if the new square is inside the board. If
-     * that condition is satisfied we check if we have a legal movement from that square and return
-     * a ArrayList of all possible moves from the square.
-     *
-     * @param board the object that represent the board
-     * @param position  the origin of the piece we are generating the move for
-     * @return ArrayList of all possible moves from that square
-     */
-    public  ArrayList<Move> generateMoves(Board board, Position position){
-        ArrayList<Jump> jumps = generateJumps(board,position);
-        if(jumps.size()!=0){
-            ArrayList<Move> newJumps = new ArrayList<Move>();
-            newJumps.addAll(jumps);
-            return newJumps;
-        }
-        return generateSingleSteps(board,position);
-    }
-    /**
-     * Finds all possible moves and jumps from the square position in one-step range.
-     * First we set the proper movement direction for each piece. After that we iterate
-     * through each movement direction and check if the new square is inside the board. If
-     * that condition is satisfied we check if we have a legal movement from that square and return
-     * a ArrayList of all possible moves from the square.
-     *
-     * @param board the object that represent the board
-     * @param position  the origin of the piece we are generating the move for
-     * @return ArrayList of all possible moves from that square
-     */
-    protected abstract ArrayList<Move> generateSingleSteps(Board board, Position position);
-
-    /**
-     * Find all possible jumps for a position.
-     * We call the findMoves method to see all the possible moves from that square.
-     * If there is any jump from the returned ArrayList, we use BreadthFirst search
-     * to look for any other jumps from the new position.
-     *
-     * @param board the object that represent the board
-     * @param position  the origin of the piece we are generating the move for
-     * @return ArrayList of all possible Jumps from that square
-     */
-    protected abstract ArrayList<Jump> generateJumps(Board board, Position position);
-
     public Piece clone(){
         try {
             return (Piece) super.clone();
@@ -1,20 +1,66 @@
 package com.checkers.models.players;
 
 import com.checkers.models.Board;
+import com.checkers.models.book.OpeningBook;
+import com.checkers.models.endgame.EndgameDatabase;
+import com.checkers.models.engine.MoveCodec;
+import com.checkers.models.engine.MoveGenerator;
+import com.checkers.models.engine.SearchStatistics;
+import com.checkers.models.engine.TimeManager;
+import com.checkers.models.engine.TranspositionTable;
 import com.checkers.models.exceptions.InValidMove;
 import com.checkers.models.move.Move;
-import com.checkers.models.piece.Pawn;
 import com.checkers.models.piece.Piece;
+import com.checkers.models.players.eval.Evaluator;
+import com.checkers.models.players.eval.WeightedEvaluator;
 
-import java.time.LocalTime;
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+
+public class AlphaBetaMinMaxAIPlayer extends Player implements AIPlayer, PonderingPlayer, InstrumentedPlayer {
+    /**
+     * Score of a won game, less one per ply from the root to the end of the game, so that a quicker win is preferred.
+     * Positions where the game is over and positions the endgame database says are won or lost are both scored on
+     * this scale. It is above anything the evaluators give a position that is still being played.
+     */
+    static final double ENDGAME_WIN = 1e6;
+    /**
+     * Scores further from 0 than this are wins or losses, whose distance to the end of the game is counted from the
+     * root. The transposition table stores them counted from the position instead, see {@link #toTable}.
+     */
+    static final double WIN_BOUND = ENDGAME_WIN / 2;
 
-
-public class AlphaBetaMinMaxAIPlayer extends Player implements AIPlayer {
-    LocalTime stTime;
-    final int MAX_SECONDS = 5;
      int MAX_DEPTH=10;
+    final TimeManager time = new TimeManager();
+    final SearchStatistics statistics = new SearchStatistics();
+    final SearchContext context = new SearchContext(statistics.newCounters());
+    // contexts of the root move tasks of a parallel search, kept between searches: as many as ever ran at once
+    private final List<SearchContext> workers = new ArrayList<>();
+    private final ConcurrentLinkedQueue<SearchContext> idleWorkers = new ConcurrentLinkedQueue<>();
+    private int tableSizeMB = TranspositionTable.DEFAULT_SIZE_MB;
+    private TranspositionTable table;
+    private Piece.PieceOwner tablePerspective;
+    private ForkJoinPool pool;
+    private SearchContext[] helpers = new SearchContext[0];
+    private Thread[] helperThreads = new Thread[0];
+    private double[] nodesPerSecond = new double[1];
+    private long reSearches;
+    private boolean seeded;
+    private long seed;
+    private Evaluator evaluator = WeightedEvaluator.material();
+    private boolean shuffleMoves = true;
+    private EndgameDatabase endgame;
+    private OpeningBook book;
+    // guarded by this: pondering is started, stopped and finished from different threads
+    private Thread ponderThread;
+    private Board ponderPosition; // the position the ponder search is made for, the predicted reply played
+    private volatile Move ponderResult;
 
     public AlphaBetaMinMaxAIPlayer(String name, Piece.PieceOwner myTurn) {
         super(name,myTurn);
@@ -28,124 +74,724 @@ public class AlphaBetaMinMaxAIPlayer extends Player implements AIPlayer {
         MAX_DEPTH = depth;
     }
 
+    /**
+     * Returns the clock of the search, to set how long a move may take or to stop a search from another thread.
+     */
+    public TimeManager getTimeManager() {
+        return time;
+    }
+
     @Override
-    public double evalBoard(Board board) {
+    public SearchStatistics getStatistics() {
+        return statistics;
+    }
 
-        int myValue=0;
-        int otherValue=0;
-
-        for(int r=0;r<board.board.length;r++){
-            for(int c=(1-r%2);c<board.board.length;c+=2){
-                Piece piece = board.board[r][c];
-
-                if(piece!=null){
-                    if(piece.owner==myTurn){
-                        if(piece instanceof Pawn)
-                            myValue+=1;
-                        else
-                            myValue+=2;
-                    }else{
-                        if(piece instanceof Pawn)
-                            otherValue+=1;
-                        else
-                            otherValue+=2;
-                    }
-                }
-            }
+    /**
+     * Sets the size of the transposition table. The table is kept between the moves of a game,
+     * it is allocated on the first move after this call.
+     *
+     * @param sizeInMB size of the table in megabytes
+     */
+    public void setTranspositionTableSize(int sizeInMB) {
+        this.tableSizeMB = sizeInMB;
+        this.table = null;
+    }
 
-        }
+    /**
+     * Returns the transposition table, or null before the first move. Its hit rate is in {@link #getStatistics()}.
+     */
+    public TranspositionTable getTranspositionTable() {
+        return table;
+    }
+
+    /**
+     * Searches the root moves in parallel on the given pool, each root move being a task that starts from the
+     * best score found so far. The tasks share the transposition table.
+     *
+     * @param pool the pool to run the root moves on, or null to search on the calling thread
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Sets the number of threads searching each move (Lazy SMP). The extra threads search the same root on their own,
+     * deepening one ply at a time from depth 1 or 2, each in its own random move order, and only talk to the main search
+     * through the transposition table, which they fill with results the main search can reuse. They are stopped when the
+     * main search finishes.
+     *
+     * @param threads 1 for a single threaded search
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) throw new IllegalArgumentException("A search needs at least one thread.");
+        for (SearchContext helper : helpers)
+            statistics.release(helper.counters);
+        helpers = new SearchContext[threads - 1];
+        for (int i = 0; i < helpers.length; i++)
+            helpers[i] = new SearchContext(statistics.newCounters());
+        helperThreads = new Thread[threads - 1];
+        nodesPerSecond = new double[threads];
+    }
+
+    /**
+     * Returns the nodes searched per second during the last move by each search thread, the main search first.
+     */
+    public double[] getNodesPerSecond() {
+        return nodesPerSecond.clone();
+    }
+
+    /**
+     * Returns the number of nodes the quiescence search visited past the search horizon during the last move,
+     * over all threads. They are not part of the nodes per second.
+     */
+    public long getQuiescenceNodes() {
+        return statistics.getQuiescenceNodes();
+    }
+
+    /**
+     * Returns how many times a move had to be searched again during the last move, over all threads: moves of the
+     * principal variation search that beat their null window, and aspiration windows the score fell outside of.
+     */
+    public long getReSearches() {
+        return reSearches;
+    }
+
+    /**
+     * Seeds the move shuffling of the search and makes the parallel search pick the same move as the sequential one
+     * whatever the scheduling of its tasks: transposition table entries are then only used at the depth they were
+     * searched to, and ties between root moves go to the first one generated. This holds for searches that finish
+     * within the time limit.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+        this.seeded = true;
+    }
+
+    /**
+     * Sets how the search scores the positions it stops at, {@link WeightedEvaluator#material()} by default.
+     */
+    public void setEvaluator(Evaluator evaluator) {
+        this.evaluator = evaluator;
+        this.tablePerspective = null; // the stored scores came from the old evaluator
+    }
+
+    public Evaluator getEvaluator() {
+        return evaluator;
+    }
+
+    /**
+     * Sets whether moves the ordering can't tell apart are searched in a random order, which varies the play
+     * between games. On by default.
+     */
+    public void setMoveShuffling(boolean shuffleMoves) {
+        this.shuffleMoves = shuffleMoves;
+    }
+
+    /**
+     * Sets an endgame database. The search stops at the positions it holds and scores them from the database
+     * instead of searching further, see {@link #ENDGAME_WIN}.
+     *
+     * @param endgame the database, or null to search every position
+     */
+    public void setEndgameDatabase(EndgameDatabase endgame) {
+        this.endgame = endgame;
+        this.tablePerspective = null; // the stored scores were searched without it
+    }
 
-        if(otherValue==0)
-            return Double.MAX_VALUE;
+    public EndgameDatabase getEndgameDatabase() {
+        return endgame;
+    }
+
+    /**
+     * Sets an opening book. Positions it holds are answered from it without searching.
+     *
+     * @param book the book, or null to search every move
+     */
+    public void setOpeningBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    public OpeningBook getOpeningBook() {
+        return book;
+    }
 
-        return myValue/otherValue;
+    @Override
+    public double evalBoard(Board board) {
+        return evaluator.evaluate(board, myTurn);
     }
 
     @Override
     public Move makeMove(Board board) throws InValidMove, CloneNotSupportedException {
-        stTime = LocalTime.now();
-        double max=Double.MIN_VALUE;
-        Move myMove=null ;
+        Move pondered = this.finishPondering(board);
+        if(book!=null){
+            if(seeded)
+                context.random.setSeed(seed);
+            long bookMove = book.probe(board, context.random);
+            if(bookMove!=MoveCodec.NONE)
+                return MoveCodec.toMove(bookMove);
+        }
+        if(pondered!=null)
+            return pondered;
+        time.start();
+        startSearch();
+        Move move = search(new Board(board));
+        statistics.stop();
+        return move;
+    }
 
+    /**
+     * Searches a position, once {@link #startSearch()} has been called.
+     *
+     * @return the best move, or null if there is none
+     */
+    Move search(Board position) {
+        statistics.setDepth(MAX_DEPTH + 1); // the root moves and MAX_DEPTH plies below them
+        int count = context.moves.generate(position, 0);
+        startHelpers(position);
+        long myMove = (pool==null)? searchRoot(position, count) : searchRootInParallel(position, count);
+        stopHelpers();
+        return (myMove==MoveCodec.NONE)? null : MoveCodec.toMove(myMove);
+    }
 
-        for (Move mv :
-                board.reachablePositionsByPlayer(myTurn)) {
+    /**
+     * Searches, on a thread of its own, the position after the reply the transposition table expects from the
+     * opponent. Nothing is searched if the table has no reply for the position, e.g. before the first move.
+     */
+    @Override
+    public synchronized void startPondering(Board position) {
+        this.stopPondering();
+        if(table==null || position.isGameOver()!=null)
+            return;
+        long reply = this.predictReply(position);
+        if(reply==MoveCodec.NONE)
+            return;
+        Board predicted = new Board(position);
+        predicted.doMove(reply);
+        if(predicted.isGameOver()!=null)
+            return;
+
+        ponderPosition = predicted;
+        ponderResult = null;
+        time.startPondering();
+        ponderThread = new Thread(() -> {
+            startSearch();
+            ponderResult = search(new Board(predicted));
+            statistics.stop();
+        }, name + " ponder");
+        ponderThread.setDaemon(true);
+        ponderThread.start();
+    }
 
-            Board temp = new Board(board);
-            temp.makeMove(mv);
-            double moveVal  = min(temp,MAX_DEPTH,Double.NEGATIVE_INFINITY,Double.POSITIVE_INFINITY);
+    @Override
+    public synchronized void stopPondering() {
+        if(ponderThread==null)
+            return;
+        time.stop();
+        join(ponderThread);
+        ponderThread = null;
+        ponderPosition = null;
+    }
 
-            if(max<moveVal || myMove==null){
+    /**
+     * Ends the ponder search when our move is asked for. If the opponent played the predicted reply the search
+     * goes on within the budget of the move, which counts from when pondering started, otherwise it is stopped.
+     * The search is waited for without holding the lock, so that {@link #stopPondering()} can still cut it short.
+     *
+     * @return the move of the ponder search on a ponder hit, otherwise null
+     */
+    private Move finishPondering(Board board) {
+        Thread thread;
+        boolean hit;
+        synchronized (this) {
+            thread = ponderThread;
+            if(thread==null)
+                return null;
+            hit = ponderPosition.getTurn()==board.getTurn() && ponderPosition.equals(board);
+            if(hit)
+                time.ponderHit();
+            else
+                time.stop();
+        }
+        join(thread);
+        synchronized (this) {
+            if(ponderThread==thread){
+                ponderThread = null;
+                ponderPosition = null;
+            }
+        }
+        return hit? ponderResult : null;
+    }
+
+    private static void join(Thread thread) {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns the best move the transposition table holds for a position if it is legal there, or
+     * {@link MoveCodec#NONE}.
+     */
+    private long predictReply(Board position) {
+        TranspositionTable.Entry entry = new TranspositionTable.Entry();
+        if(!table.probe(position.hash(), entry) || entry.move<0)
+            return MoveCodec.NONE;
+        long reply = entry.bestMove();
+        long[] moves = new long[MoveGenerator.MAX_MOVES];
+        int count = position.generateMoves(moves);
+        for (int i = 0; i < count; i++) {
+            if(moves[i]==reply)
+                return reply;
+        }
+        return MoveCodec.NONE;
+    }
+
+    private long searchRoot(Board position, int count) {
+        double max=Double.NEGATIVE_INFINITY;
+        long myMove=MoveCodec.NONE;
+
+        for (int i = 0; i < count; i++) {
+            long mv = context.moves.get(0, i);
+            long undoInfo = position.doMove(mv);
+            double moveVal  = pvsMin(context,position,MAX_DEPTH,1,max,Double.POSITIVE_INFINITY,i==0);
+            position.undoMove(undoInfo);
+
+            if(max<moveVal || myMove==MoveCodec.NONE){
                 myMove = mv;
                 max=moveVal;
             }
         }
-
         return myMove;
     }
 
-    private double min(Board prevBoard, int depth, double alpha, double beta) throws InValidMove, CloneNotSupportedException {
-        if(prevBoard.isGameOver()!=null)
-            return evalBoard(prevBoard);
-        if(stTime.plusSeconds(MAX_SECONDS).compareTo(LocalTime.now())==-1)
+    private long searchRootInParallel(Board position, int count) {
+        long[] rootMoves = context.moves.moves(0);
+        RootSplit split = new RootSplit();
+        List<Callable<Void>> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            tasks.add(() -> {
+                SearchContext worker = this.takeWorker();
+                try {
+                    if(seeded){ // the same start whatever worker the task gets
+                        worker.random.setSeed(seed + index);
+                        worker.ordering.clear();
+                    }
+                    long reSearches = worker.reSearches;
+                    Board board = new Board(position);
+                    board.doMove(rootMoves[index]);
+                    double score = min(worker,board,MAX_DEPTH,1,split.alpha,Double.POSITIVE_INFINITY);
+                    split.offer(index, score, worker.reSearches - reSearches);
+                } finally {
+                    idleWorkers.add(worker);
+                }
+                return null;
+            });
+        }
+
+        try {
+            for (Future<Void> task : pool.invokeAll(tasks))
+                task.get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+        context.reSearches += split.reSearches;
+        return (split.bestIndex<0)? MoveCodec.NONE : rootMoves[split.bestIndex];
+    }
+
+    /**
+     * Hands a root move task a context no other task is using, making a new one only when all are busy.
+     */
+    private SearchContext takeWorker() {
+        SearchContext worker = idleWorkers.poll();
+        if(worker!=null)
+            return worker;
+        synchronized (workers) {
+            worker = new SearchContext(statistics.newCounters());
+            workers.add(worker);
+        }
+        return worker;
+    }
+
+    /**
+     * Best root move of a parallel search. Alpha is kept just below the best score so that a later move
+     * scoring the same still gets its exact score, and the tie can go to the move generated first.
+     */
+    private static final class RootSplit {
+        volatile double alpha = Double.NEGATIVE_INFINITY;
+        double bestScore;
+        int bestIndex = -1;
+        long reSearches;
+
+        synchronized void offer(int index, double score, long taskReSearches) {
+            reSearches += taskReSearches;
+            if (bestIndex < 0 || score > bestScore || (score == bestScore && index < bestIndex)) {
+                bestScore = score;
+                bestIndex = index;
+                alpha = Math.nextDown(score);
+            }
+        }
+    }
+
+    /**
+     * Starts the Lazy SMP helper threads on the root position, see {@link #setThreads(int)}.
+     */
+    void startHelpers(Board position) {
+        for (int i = 0; i < helpers.length; i++) {
+            SearchContext helper = helpers[i];
+            int stagger = (i + 1) % 2;
+            helper.reSearches = 0;
+            helper.aborted = false;
+            helper.ordering.newSearch();
+            if (seeded)
+                helper.random.setSeed(seed + i + 1);
+            helperThreads[i] = new Thread(() -> helperSearch(helper, new Board(position), stagger), name + " helper " + (i + 1));
+            helperThreads[i].setDaemon(true);
+            helperThreads[i].start();
+        }
+    }
+
+    private void helperSearch(SearchContext helper, Board position, int stagger) {
+        int count = helper.moves.generate(position, 0);
+        for (int depth = stagger; !helper.aborted && !isTimeUp(); depth = Math.min(depth + 1, MAX_DEPTH + stagger)) {
+            helper.moves.shuffle(0, helper.random);
+            for (int i = 0; i < count && !helper.aborted; i++) {
+                long undoInfo = position.doMove(helper.moves.get(0, i));
+                min(helper,position,depth,1,Double.NEGATIVE_INFINITY,Double.POSITIVE_INFINITY);
+                position.undoMove(undoInfo);
+            }
+        }
+    }
+
+    /**
+     * Stops the helper threads and works out the nodes per second of every thread.
+     */
+    void stopHelpers() {
+        for (SearchContext helper : helpers)
+            helper.aborted = true;
+        for (Thread thread : helperThreads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        double seconds = Math.max(time.elapsedNanos(), 1) / 1e9;
+        long mainNodes = statistics.getNodes(); // the pool workers count for the main search
+        reSearches = context.reSearches;
+        for (int i = 0; i < helpers.length; i++) {
+            nodesPerSecond[i + 1] = helpers[i].counters.nodes / seconds;
+            mainNodes -= helpers[i].counters.nodes;
+            reSearches += helpers[i].reSearches;
+        }
+        nodesPerSecond[0] = mainNodes / seconds;
+    }
+
+    /**
+     * Gets the transposition table ready for a new search, once its clock has been started.
+     */
+    void startSearch() {
+        statistics.start();
+        context.reSearches = 0;
+        context.ordering.newSearch();
+        synchronized (workers) { // no task runs between searches
+            for (SearchContext worker : workers)
+                worker.ordering.newSearch();
+        }
+        if (seeded)
+            context.random.setSeed(seed);
+        if (table == null)
+            table = new TranspositionTable(tableSizeMB);
+        if (tablePerspective != myTurn) // scores are stored from our point of view
+            table.clear();
+        tablePerspective = myTurn;
+        table.newSearch();
+    }
+
+    /**
+     * Checks the clock, see {@link TimeManager#shouldStop()}. Once the time is up the search unwinds and results are
+     * no longer stored in the table.
+     */
+    boolean isTimeUp() {
+        return time.shouldStop();
+    }
+
+    double min(SearchContext ctx, Board prevBoard, int depth, int ply, double alpha, double beta) {
+        ctx.counters.nodes++;
+        if(ply>ctx.counters.maxPly)
+            ctx.counters.maxPly = ply;
+        Piece.PieceOwner winner = prevBoard.isGameOver();
+        if(winner!=null)
+            return gameOverScore(winner, ply);
+        double known = probeEndgame(prevBoard, ply);
+        if(!Double.isNaN(known))
+            return known;
+        if(ctx.aborted || isTimeUp())
             return evalBoard(prevBoard);
 
         if(depth==0)
-            return evalBoard(prevBoard);
+            return quiesce(ctx,prevBoard,ply,alpha,beta,false);
+
+        TranspositionTable.Entry entry = ctx.entry;
+        long hashMove = MoveCodec.NONE;
+        ctx.counters.tableProbes++;
+        if(table.probe(prevBoard.hash(), entry)){
+            ctx.counters.tableHits++;
+            hashMove = entry.bestMove(); // worth trying first even when the entry is too shallow to give a score
+            if(entry.depth==depth || entry.depth>depth && !seeded){
+                double score = fromTable(entry.score, ply);
+                if(entry.bound==TranspositionTable.EXACT)
+                    return score;
+                if(entry.bound==TranspositionTable.LOWER)
+                    alpha = Math.max(alpha,score);
+                else
+                    beta = Math.min(beta,score);
+                if(beta <= alpha)
+                    return score;
+            }
+        }
+        double alphaStart = alpha, betaStart = beta;
 
-        List<Move> moveList = prevBoard.reachablePositionsByPlayer();
+        int count = ctx.moves.generate(prevBoard, ply);
 
-        Collections.shuffle(moveList);
+        ctx.ordering.order(ctx.moves, ply, hashMove, shuffleMoves? ctx.random : null);
         double min=Double.MAX_VALUE;
-
-        for (Move mv :
-                moveList) {
-            Board temp = new Board(prevBoard);
-            temp.makeMove(mv);
-
-            double moveVal = max(temp,depth-1,alpha,beta);
+        long bestMove=MoveCodec.NONE;
+
+        for (int i = 0; i < count; i++) {
+            long mv = ctx.moves.get(ply, i);
+            long undoInfo = prevBoard.doMove(mv);
+            double moveVal = pvsMax(ctx,prevBoard,depth-1,ply+1,alpha,beta,i==0);
+            prevBoard.undoMove(undoInfo);
+            if(moveVal<min || bestMove==MoveCodec.NONE)
+                bestMove = mv;
             min = Math.min(min,moveVal);
             beta = Math.min(beta, moveVal);
 
 
             if(beta <= alpha){
+                ctx.ordering.cutoff(ply, mv, depth);
+                ctx.counters.cutoffs++;
+                if(i==0)
+                    ctx.counters.firstMoveCutoffs++;
                 break;
             }
 
         }
+        store(ctx, prevBoard, depth, ply, min, alphaStart, betaStart, bestMove);
         return min;
     }
 
-    private double max(Board prevBoard,  int depth, double alpha, double beta) throws InValidMove, CloneNotSupportedException {
-        if(prevBoard.isGameOver()!=null)
-            return evalBoard(prevBoard);
-        if(stTime.plusSeconds(MAX_SECONDS).compareTo(LocalTime.now())==-1)
+    double max(SearchContext ctx, Board prevBoard, int depth, int ply, double alpha, double beta) {
+        ctx.counters.nodes++;
+        if(ply>ctx.counters.maxPly)
+            ctx.counters.maxPly = ply;
+        Piece.PieceOwner winner = prevBoard.isGameOver();
+        if(winner!=null)
+            return gameOverScore(winner, ply);
+        double known = probeEndgame(prevBoard, ply);
+        if(!Double.isNaN(known))
+            return known;
+        if(ctx.aborted || isTimeUp())
             return evalBoard(prevBoard);
         if(depth==0)
-            return evalBoard(prevBoard);
-
-        List<Move> moveList = prevBoard.reachablePositionsByPlayer();
+            return quiesce(ctx,prevBoard,ply,alpha,beta,true);
+
+        TranspositionTable.Entry entry = ctx.entry;
+        long hashMove = MoveCodec.NONE;
+        ctx.counters.tableProbes++;
+        if(table.probe(prevBoard.hash(), entry)){
+            ctx.counters.tableHits++;
+            hashMove = entry.bestMove(); // worth trying first even when the entry is too shallow to give a score
+            if(entry.depth==depth || entry.depth>depth && !seeded){
+                double score = fromTable(entry.score, ply);
+                if(entry.bound==TranspositionTable.EXACT)
+                    return score;
+                if(entry.bound==TranspositionTable.LOWER)
+                    alpha = Math.max(alpha,score);
+                else
+                    beta = Math.min(beta,score);
+                if(beta <= alpha)
+                    return score;
+            }
+        }
+        double alphaStart = alpha, betaStart = beta;
 
+        int count = ctx.moves.generate(prevBoard, ply);
 
-        Collections.shuffle(moveList);
-        double max=Double.MIN_VALUE;
 
-        for (Move mv :
-                moveList) {
-            Board temp = new Board(prevBoard);
-            temp.makeMove(mv);
+        ctx.ordering.order(ctx.moves, ply, hashMove, shuffleMoves? ctx.random : null);
+        double max=Double.NEGATIVE_INFINITY;
+        long bestMove=MoveCodec.NONE;
 
-            double moveVal = min(temp,depth-1,alpha,beta);
+        for (int i = 0; i < count; i++) {
+            long mv = ctx.moves.get(ply, i);
+            long undoInfo = prevBoard.doMove(mv);
+            double moveVal = pvsMin(ctx,prevBoard,depth-1,ply+1,alpha,beta,i==0);
+            prevBoard.undoMove(undoInfo);
+            if(moveVal>max || bestMove==MoveCodec.NONE)
+                bestMove = mv;
             max = Math.max(max,moveVal);
             alpha = Math.max(alpha,moveVal);
 
 
             if(beta <= alpha){
+                ctx.ordering.cutoff(ply, mv, depth);
+                ctx.counters.cutoffs++;
+                if(i==0)
+                    ctx.counters.firstMoveCutoffs++;
                 break;
             }
         }
+        store(ctx, prevBoard, depth, ply, max, alphaStart, betaStart, bestMove);
         return max;
 
     }
 
+    /**
+     * Searches a move of a max node, principal variation search style: the first move gets the whole window,
+     * the others a null window just above alpha, which only proves they are no better. A move that does beat
+     * alpha is searched again with the whole window to get its score.
+     *
+     * @param first whether the move is the first one searched at its node
+     */
+    double pvsMin(SearchContext ctx, Board board, int depth, int ply, double alpha, double beta, boolean first) {
+        if(first)
+            return min(ctx,board,depth,ply,alpha,beta);
+        double score = min(ctx,board,depth,ply,alpha,Math.nextUp(alpha));
+        if(score>alpha && score<beta){
+            ctx.reSearches++;
+            score = min(ctx,board,depth,ply,alpha,beta);
+        }
+        return score;
+    }
+
+    /**
+     * Searches a move of a min node, the mirror image of {@link #pvsMin}: the null window sits just below beta.
+     */
+    double pvsMax(SearchContext ctx, Board board, int depth, int ply, double alpha, double beta, boolean first) {
+        if(first)
+            return max(ctx,board,depth,ply,alpha,beta);
+        double score = max(ctx,board,depth,ply,Math.nextDown(beta),beta);
+        if(score<beta && score>alpha){
+            ctx.reSearches++;
+            score = max(ctx,board,depth,ply,alpha,beta);
+        }
+        return score;
+    }
+
+    /**
+     * Goes on past the search horizon for as long as the player to move has to jump, so that positions are only
+     * evaluated once no capture is pending. Jumps are mandatory, so there is no standing pat: all of them are searched.
+     *
+     * @param maximizing whether the player to move is us
+     */
+    double quiesce(SearchContext ctx, Board board, int ply, double alpha, double beta, boolean maximizing) {
+        if(ply>ctx.counters.maxPly)
+            ctx.counters.maxPly = ply;
+        Piece.PieceOwner winner = board.isGameOver();
+        if(winner!=null)
+            return gameOverScore(winner, ply);
+        if(ctx.aborted || ply >= ctx.moves.maxPly())
+            return evalBoard(board);
+        double known = probeEndgame(board, ply);
+        if(!Double.isNaN(known))
+            return known;
+
+        int count = ctx.moves.generate(board, ply);
+        if(count==0 || MoveCodec.captured(ctx.moves.get(ply, 0))==0) // quiet
+            return evalBoard(board);
+
+        ctx.ordering.order(ctx.moves, ply, MoveCodec.NONE, null);
+        double best = maximizing? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            long undoInfo = board.doMove(ctx.moves.get(ply, i));
+            ctx.counters.quiescenceNodes++;
+            double moveVal = quiesce(ctx,board,ply+1,alpha,beta,!maximizing);
+            board.undoMove(undoInfo);
+            if(maximizing){
+                best = Math.max(best,moveVal);
+                alpha = Math.max(alpha,moveVal);
+            }else{
+                best = Math.min(best,moveVal);
+                beta = Math.min(beta,moveVal);
+            }
+            if(beta <= alpha)
+                break;
+        }
+        return best;
+    }
+
+    /**
+     * Scores a position where the game is over, see {@link #ENDGAME_WIN}.
+     *
+     * @param winner the winner, as {@link Board#isGameOver()} gives it
+     * @param ply    the plies from the root to the position
+     */
+    double gameOverScore(Piece.PieceOwner winner, int ply) {
+        double score = ENDGAME_WIN - ply;
+        return (winner==myTurn)? score : -score;
+    }
+
+    /**
+     * Looks a position up in the endgame database.
+     *
+     * @param ply the plies from the root to the position
+     * @return its score from our point of view, see {@link #ENDGAME_WIN}, or NaN if there is no database or it
+     * doesn't hold the position
+     */
+    double probeEndgame(Board board, int ply) {
+        if(endgame==null)
+            return Double.NaN;
+        int pieces = board.getPawnCount(Piece.PieceOwner.PLAYER1) + board.getKingCount(Piece.PieceOwner.PLAYER1)
+                + board.getPawnCount(Piece.PieceOwner.PLAYER2) + board.getKingCount(Piece.PieceOwner.PLAYER2);
+        if(!endgame.covers(pieces))
+            return Double.NaN;
+        int value = endgame.probe(board);
+        if(value==EndgameDatabase.UNKNOWN)
+            return Double.NaN;
+        if(value==EndgameDatabase.DRAW)
+            return 0;
+        double score = ENDGAME_WIN - ply - EndgameDatabase.distance(value);
+        return (EndgameDatabase.isWin(value) == (board.getTurn()==myTurn))? score : -score;
+    }
+
+    private void store(SearchContext ctx, Board board, int depth, int ply, double score, double alpha, double beta, long bestMove) {
+        if(time.isStopped() || ctx.aborted) // the subtree wasn't fully searched
+            return;
+
+        int bound = TranspositionTable.EXACT;
+        if(score <= alpha)
+            bound = TranspositionTable.UPPER;
+        else if(score >= beta)
+            bound = TranspositionTable.LOWER;
+        table.store(board.hash(), depth, toTable(score, ply), bound, bestMove);
+    }
+
+    /**
+     * Counts the distance of a win or a loss to the end of the game from the position instead of from the root, so
+     * that the entry holds wherever the position is reached.
+     */
+    static double toTable(double score, int ply) {
+        if(score > WIN_BOUND)
+            return score + ply;
+        if(score < -WIN_BOUND)
+            return score - ply;
+        return score;
+    }
+
+    /**
+     * The reverse of {@link #toTable}, for a position reached at the given ply.
+     */
+    static double fromTable(double score, int ply) {
+        if(score > WIN_BOUND)
+            return score - ply;
+        if(score < -WIN_BOUND)
+            return score + ply;
+        return score;
+    }
+
 }
@@ -0,0 +1,14 @@
+package com.checkers.models.players;
+
+import com.checkers.models.engine.SearchStatistics;
+
+/**
+ * A player whose searches can be looked into: what its last search did can be read after each move, or published
+ * over JMX with {@link SearchStatistics#register(String)}.
+ */
+public interface InstrumentedPlayer {
+    /**
+     * Returns the counts of the last search, updated in place by every search.
+     */
+    SearchStatistics getStatistics();
+}
@@ -1,153 +1,121 @@
 package com.checkers.models.players;
 
 import com.checkers.models.Board;
-import com.checkers.models.exceptions.InValidMove;
+import com.checkers.models.engine.MoveCodec;
 import com.checkers.models.move.Move;
-import com.checkers.models.piece.Pawn;
 import com.checkers.models.piece.Piece;
 
-import java.time.LocalTime;
-import java.util.Collections;
-import java.util.List;
-
-
-public class IterativeDeepeningAIPlayer extends Player implements AIPlayer {
-    LocalTime stTime;
-    final int MAX_SECONDS = 5;
-    int MAX_DEPTH=10;
+/**
+ * Alpha-beta player that searches one ply deeper at a time until its time is up, and plays the best
+ * move of the deepest search that finished. No iteration is started past the soft budget of the
+ * {@link com.checkers.models.engine.TimeManager}, and the one running is given up at the hard budget. Each iteration searches the best move of the previous
+ * one first, and the transposition table carries the rest of the ordering between iterations.
+ * An iteration first searches a window around the score of the previous one (aspiration window),
+ * and only searches again with a wider window if the score falls outside of it.
+ */
+public class IterativeDeepeningAIPlayer extends AlphaBetaMinMaxAIPlayer {
+    static final int MAX_ITERATIONS = 100;
+    public static final double DEFAULT_ASPIRATION_WINDOW = 0.5;
+
+    private int completedDepth;
+    private double aspirationWindow = DEFAULT_ASPIRATION_WINDOW;
 
     public IterativeDeepeningAIPlayer(String name, Piece.PieceOwner myTurn) {
-        super(name,myTurn);
+        this(name,myTurn,MAX_ITERATIONS);
     }
 
     public IterativeDeepeningAIPlayer(){
-        super("AlphaBeta", Piece.PieceOwner.PLAYER2);
+        this("AlphaBeta", Piece.PieceOwner.PLAYER2);
     }
+
+    /**
+     * @param depth the deepest iteration to search, if there is time for it
+     */
     public IterativeDeepeningAIPlayer(String name, Piece.PieceOwner myTurn,int depth){
-        this(name,myTurn);
-        MAX_DEPTH = depth;
+        super(name,myTurn,depth);
     }
 
     @Override
-    public double evalBoard(Board board) {
-
-        int myValue=0;
-        int otherValue=0;
-
-        for(int r=0;r<board.board.length;r++){
-            for(int c=(1-r%2);c<board.board.length;c+=2){
-                Piece piece = board.board[r][c];
-
-                if(piece!=null){
-                    if(piece.owner==myTurn){
-                        if(piece instanceof Pawn)
-                            myValue+=1;
-                        else
-                            myValue+=2;
-                    }else{
-                        if(piece instanceof Pawn)
-                            otherValue+=1;
-                        else
-                            otherValue+=2;
+    Move search(Board position) {
+        completedDepth = 0;
+        statistics.setDepth(0);
+        long myMove=MoveCodec.NONE;
+        int count = context.moves.generate(position, 0);
+        long[] rootMoves = context.moves.moves(0);
+        if(count==1)
+            return MoveCodec.toMove(rootMoves[0]);
+
+        startHelpers(position);
+        double previous = Double.NaN;
+        for (int depth = 1 ; depth <= MAX_DEPTH && !time.isSoftTimeUp() ; depth++) {
+            // look for the score near the one of the previous iteration first, and widen the side it falls out of
+            boolean aspire = !Double.isNaN(previous) && Math.abs(previous) < Double.MAX_VALUE;
+            double alpha = aspire? previous - aspirationWindow : Double.NEGATIVE_INFINITY;
+            double beta = aspire? previous + aspirationWindow : Double.POSITIVE_INFINITY;
+            double max;
+            long iterationMove;
+            while (true) {
+                max = Double.NEGATIVE_INFINITY;
+                iterationMove = MoveCodec.NONE;
+                for (int j = 0; j < count && max < beta; j++) {
+                    long mv = rootMoves[j];
+                    long undoInfo = position.doMove(mv);
+                    double moveVal  = pvsMin(context,position,depth-1,1,Math.max(alpha,max),beta,j==0);
+                    position.undoMove(undoInfo);
+
+                    if(max<moveVal || iterationMove==MoveCodec.NONE){
+                        iterationMove = mv;
+                        max=moveVal;
                     }
                 }
+                if(time.isStopped())
+                    break;
+                if(max<=alpha && alpha!=Double.NEGATIVE_INFINITY)
+                    alpha = Double.NEGATIVE_INFINITY;
+                else if(max>=beta && beta!=Double.POSITIVE_INFINITY)
+                    beta = Double.POSITIVE_INFINITY;
+                else
+                    break;
+                context.reSearches++;
             }
+            if(time.isStopped()) // the iteration didn't finish, its scores can't be trusted
+                break;
 
+            myMove = iterationMove;
+            previous = max;
+            completedDepth = depth;
+            statistics.setDepth(depth);
+            moveToFront(rootMoves, count, myMove);
         }
+        stopHelpers();
 
-        if(otherValue==0)
-            return Double.MAX_VALUE;
-
-        return myValue/otherValue;
+        if(myMove==MoveCodec.NONE && count>0) // not even the first iteration finished
+            myMove = rootMoves[0];
+        return (myMove==MoveCodec.NONE)? null : MoveCodec.toMove(myMove);
     }
 
-    @Override
-    public Move makeMove(Board board) throws InValidMove, CloneNotSupportedException {
-        stTime = LocalTime.now();
-        double max=Double.MIN_VALUE;
-        Move myMove=null ;
-
-        for (int i = MAX_DEPTH ; i <100 && stTime.plusSeconds(MAX_SECONDS).compareTo(LocalTime.now())==-1 ; i++) {
-            for (Move mv :
-                    board.reachablePositionsByPlayer(myTurn)) {
-
-                Board temp = new Board(board);
-                temp.makeMove(mv);
-                double moveVal  = min(temp,MAX_DEPTH,Double.NEGATIVE_INFINITY,Double.POSITIVE_INFINITY);
-
-                if(max<moveVal || myMove==null){
-                    myMove = mv;
-                    max=moveVal;
-                }
-            }
-        }
-
-
-        return myMove;
+    private static void moveToFront(long[] moves, int count, long move) {
+        int i = 0;
+        while (i < count && moves[i] != move) i++;
+        for (; i > 0; i--) moves[i] = moves[i - 1];
+        moves[0] = move;
     }
 
-    private double min(Board prevBoard, int depth, double alpha, double beta) throws InValidMove, CloneNotSupportedException {
-        if(prevBoard.isGameOver()!=null)
-            return evalBoard(prevBoard);
-        if(stTime.plusSeconds(MAX_SECONDS).compareTo(LocalTime.now())==-1)
-            return evalBoard(prevBoard);
-
-        if(depth==0)
-            return evalBoard(prevBoard);
-
-        List<Move> moveList = prevBoard.reachablePositionsByPlayer();
-
-        Collections.shuffle(moveList);
-        double min=Double.MAX_VALUE;
-
-        for (Move mv :
-                moveList) {
-            Board temp = new Board(prevBoard);
-            temp.makeMove(mv);
-
-            double moveVal = max(temp,depth-1,alpha,beta);
-            min = Math.min(min,moveVal);
-            beta = Math.min(beta, moveVal);
-
-
-            if(beta <= alpha){
-                break;
-            }
-
-        }
-        return min;
+    /**
+     * Sets how far from the score of the previous iteration the aspiration window reaches on each side,
+     * in the units of the evaluator (a pawn is worth 1 with the default one).
+     *
+     * @param window the half width of the window, or infinity to search every iteration with a full window
+     */
+    public void setAspirationWindow(double window) {
+        this.aspirationWindow = window;
     }
 
-    private double max(Board prevBoard,  int depth, double alpha, double beta) throws InValidMove, CloneNotSupportedException {
-        if(prevBoard.isGameOver()!=null)
-            return evalBoard(prevBoard);
-        if(stTime.plusSeconds(MAX_SECONDS).compareTo(LocalTime.now())==-1)
-            return evalBoard(prevBoard);
-        if(depth==0)
-            return evalBoard(prevBoard);
-
-        List<Move> moveList = prevBoard.reachablePositionsByPlayer();
-
-
-        Collections.shuffle(moveList);
-        double max=Double.MIN_VALUE;
-
-        for (Move mv :
-                moveList) {
-            Board temp = new Board(prevBoard);
-            temp.makeMove(mv);
-
-            double moveVal = min(temp,depth-1,alpha,beta);
-            max = Math.max(max,moveVal);
-            alpha = Math.max(alpha,moveVal);
-
-
-            if(beta <= alpha){
-                break;
-            }
-        }
-        return max;
-
+    /**
+     * Returns the depth of the last iteration that finished during the last move.
+     */
+    public int getCompletedDepth() {
+        return completedDepth;
     }
 
 }
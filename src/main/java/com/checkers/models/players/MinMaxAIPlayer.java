@@ -1,20 +1,27 @@
 package com.checkers.models.players;
 import com.checkers.models.Board;
+import com.checkers.models.engine.MoveBuffer;
+import com.checkers.models.engine.MoveCodec;
+import com.checkers.models.engine.SearchStatistics;
+import com.checkers.models.engine.TimeManager;
 import com.checkers.models.exceptions.InValidMove;
 import com.checkers.models.move.Move;
-import com.checkers.models.piece.Pawn;
 import com.checkers.models.piece.Piece;
+import com.checkers.models.players.eval.Evaluator;
+import com.checkers.models.players.eval.WeightedEvaluator;
 
-import java.time.LocalTime;
-import java.util.Collections;
-import java.util.List;
+import java.util.Random;
 
 
-public class MinMaxAIPlayer extends Player implements AIPlayer {
+public class MinMaxAIPlayer extends Player implements AIPlayer, InstrumentedPlayer {
 
-    LocalTime stTime;
-    final int MAX_SECONDS = 5;
     final int MAX_DEPTH=5;
+    private final TimeManager time = new TimeManager();
+    private final SearchStatistics statistics = new SearchStatistics();
+    private final SearchStatistics.Counters counters = statistics.newCounters();
+    private final MoveBuffer moves = new MoveBuffer();
+    private final Random random = new Random();
+    private Evaluator evaluator = WeightedEvaluator.material();
 
     public MinMaxAIPlayer(String name, Piece.PieceOwner myTurn) {
         super(name,myTurn);
@@ -25,108 +32,109 @@ public class MinMaxAIPlayer extends Player implements AIPlayer {
 
 
 
+    /**
+     * Returns the clock of the search, to set how long a move may take or to stop a search from another thread.
+     */
+    public TimeManager getTimeManager() {
+        return time;
+    }
+
     @Override
-    public double evalBoard(Board board) {
-    // TODO check for end game and amend the algorithm to adapt to that
-        int myValue=0;
-        int otherValue=0;
-
-        for(int r=0;r<board.board.length;r++){
-            for(int c=(1-r%2);c<board.board.length;c+=2){
-                Piece piece = board.board[r][c];
-
-                if(piece!=null){
-                    if(piece.owner==myTurn){
-                        if(piece instanceof Pawn)
-                            myValue+=1;
-                        else
-                            myValue+=2;
-                    }else{
-                        if(piece instanceof Pawn)
-                            otherValue+=1;
-                        else
-                            otherValue+=2;
-                    }
-                }
-            }
+    public SearchStatistics getStatistics() {
+        return statistics;
+    }
 
-        }
+    /**
+     * Sets how the search scores the positions it stops at, {@link WeightedEvaluator#material()} by default.
+     */
+    public void setEvaluator(Evaluator evaluator) {
+        this.evaluator = evaluator;
+    }
 
-        if(otherValue==0)
-            return Double.MAX_VALUE;
+    public Evaluator getEvaluator() {
+        return evaluator;
+    }
 
-        return myValue/otherValue;
+    @Override
+    public double evalBoard(Board board) {
+        return evaluator.evaluate(board, myTurn);
     }
 
     @Override
     public Move makeMove(Board board) throws InValidMove {
-        stTime = LocalTime.now();
-        double max=Double.MIN_VALUE;
-        Move myMove=null ;
+        time.start();
+        statistics.start();
+        statistics.setDepth(MAX_DEPTH + 1);
+        double max=Double.NEGATIVE_INFINITY;
+        long myMove=MoveCodec.NONE;
        // Piece.PieceOwner nextInTurn = (myTurn== Piece.PieceOwner.PLAYER1)? Piece.PieceOwner.PLAYER2: Piece.PieceOwner.PLAYER1;
 
-       for (Move mv :
-                board.reachablePositionsByPlayer()) {
+        Board position = new Board(board);
+        int count = moves.generate(position, 0);
+        for (int i = 0; i < count; i++) {
+            long mv = moves.get(0, i);
+            long undoInfo = position.doMove(mv);
+            double moveVal  = min(position,MAX_DEPTH,1);
+            position.undoMove(undoInfo);
 
-            Board temp = new Board(board);
-            temp.makeMove(mv);
-            double moveVal  = min(temp,MAX_DEPTH);
-
-            if( myMove==null || max<moveVal ){
+            if( myMove==MoveCodec.NONE || max<moveVal ){
                 myMove = mv;
                 max=moveVal;
             }
         }
+        statistics.stop();
 
-        return myMove;
+        return (myMove==MoveCodec.NONE)? null : MoveCodec.toMove(myMove);
     }
 
-    private double min(Board prevBoard,  int depth) throws InValidMove {
+    private double min(Board prevBoard, int depth, int ply) {
+        counters.nodes++;
+        if(ply>counters.maxPly)
+            counters.maxPly = ply;
         if(prevBoard.isGameOver()!=null)
             return evalBoard(prevBoard);
-        if(stTime.plusSeconds(MAX_SECONDS).compareTo(LocalTime.now())==-1)
+        if(time.shouldStop())
             return evalBoard(prevBoard);
         if(depth==0)
             return evalBoard(prevBoard);
 
-        List<Move> moveList = prevBoard.reachablePositionsByPlayer();
+        int count = moves.generate(prevBoard, ply);
        // Piece.PieceOwner nextInTurn = (inTurn== Piece.PieceOwner.PLAYER1)? Piece.PieceOwner.PLAYER2: Piece.PieceOwner.PLAYER1;
 
-        Collections.shuffle(moveList);
+        moves.shuffle(ply, random);
         double min=Double.MAX_VALUE;
 
-        for (Move mv :
-                moveList) {
-            Board temp = new Board(prevBoard);
-            temp.makeMove(mv);
-
-            double moveVal = max(temp,depth-1);
+        for (int i = 0; i < count; i++) {
+            long undoInfo = prevBoard.doMove(moves.get(ply, i));
+            double moveVal = max(prevBoard,depth-1,ply+1);
+            prevBoard.undoMove(undoInfo);
             min = Math.min(min,moveVal);
 
         }
 
         return min;
     }
-    private double max(Board prevBoard, int depth) throws InValidMove {
+    private double max(Board prevBoard, int depth, int ply) {
+        counters.nodes++;
+        if(ply>counters.maxPly)
+            counters.maxPly = ply;
         if(prevBoard.isGameOver()!=null)
             return evalBoard(prevBoard);
-        if(stTime.plusSeconds(MAX_SECONDS).compareTo(LocalTime.now())==-1)
+        if(time.shouldStop())
             return evalBoard(prevBoard);
         if(depth==0)
             return evalBoard(prevBoard);
 
-        List<Move> moveList = prevBoard.reachablePositionsByPlayer();
+        int count = moves.generate(prevBoard, ply);
         //Piece.PieceOwner nextInTurn = (inTurn== Piece.PieceOwner.PLAYER1)? Piece.PieceOwner.PLAYER2: Piece.PieceOwner.PLAYER1;
 
-        Collections.shuffle(moveList);
-        double max=Double.MIN_VALUE;
-
-        for (Move mv :
-                moveList) {
-            Board temp = new Board(prevBoard);
-            temp.makeMove(mv);
+        moves.shuffle(ply, random);
+        double max=Double.NEGATIVE_INFINITY;
 
-            double moveVal = min(temp,depth-1);
+        for (int i = 0; i < count; i++) {
+            long undoInfo = prevBoard.doMove(moves.get(ply, i));
+            double moveVal = min(prevBoard,depth-1,ply+1);
+            prevBoard.undoMove(undoInfo);
             max = Math.max(max,moveVal);
 
         }
@@ -0,0 +1,23 @@
+package com.checkers.models.players;
+
+import com.checkers.models.Board;
+
+/**
+ * A player that can think on the opponent's time. Once it has moved it is given the position the opponent has to
+ * move from, and searches in the background until its next move is asked for. If the search was made for the
+ * position it is then given, the work is reused; otherwise the search is dropped.
+ */
+public interface PonderingPlayer {
+    /**
+     * Starts thinking on the opponent's time, stopping any earlier pondering first.
+     *
+     * @param position the position after our move, the opponent to move
+     */
+    void startPondering(Board position);
+
+    /**
+     * Stops thinking on the opponent's time and waits for the background search to end, e.g. when the game is
+     * left or a move is taken back. Nothing happens if the player isn't pondering.
+     */
+    void stopPondering();
+}
@@ -1,14 +1,17 @@
 package com.checkers.models.players;
 
 import com.checkers.models.Board;
+import com.checkers.models.engine.MoveCodec;
+import com.checkers.models.engine.MoveGenerator;
 import com.checkers.models.move.Move;
 import com.checkers.models.piece.Piece;
 
-import java.util.List;
 import java.util.Random;
 
 public class RandomPlayer extends Player {
     Random random;
+    private final long[] moves = new long[MoveGenerator.MAX_MOVES];
+
     public RandomPlayer(String name, Piece.PieceOwner myTurn) {
         super(name,myTurn);
         this.random = new Random();
@@ -19,8 +22,7 @@ public class RandomPlayer extends Player {
     }
     @Override
     public Move makeMove(Board board) {
-        List<Move> moveList = board.reachablePositionsByPlayer(myTurn);
-        int mv = random.nextInt(moveList.size());
-        return moveList.get(mv);
+        int count = board.generateMoves(myTurn, moves);
+        return MoveCodec.toMove(moves[random.nextInt(count)]);
     }
 }
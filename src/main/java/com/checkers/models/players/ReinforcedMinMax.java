@@ -1,43 +1,95 @@
 package com.checkers.models.players;
 
 import com.checkers.models.Board;
+import com.checkers.models.endgame.EndgameDatabase;
+import com.checkers.models.engine.MoveCodec;
+import com.checkers.models.engine.MoveGenerator;
+import com.checkers.models.engine.SearchStatistics;
 import com.checkers.models.exceptions.InValidMove;
 import com.checkers.models.move.Move;
 import com.checkers.models.piece.Piece;
 
-public class ReinforcedMinMax extends Player {
+/**
+ * Alpha-beta player that plays perfectly once few enough pieces are left, from an {@link EndgameDatabase}: it then
+ * wins as fast as it can, draws if it can't win, and otherwise loses as slowly as it can. Before that the search stops
+ * at the positions the database holds. Without a database it plays like {@link AlphaBetaMinMaxAIPlayer}.
+ */
+public class ReinforcedMinMax extends Player implements InstrumentedPlayer {
     private AlphaBetaMinMaxAIPlayer minMaxAIPlayer;
-    private ReinforcedPlayer reinforcedPlayer;
+    private EndgameDatabase endgame;
 
-    public ReinforcedMinMax(String name, String version, Piece.PieceOwner myTurn) {
+    /**
+     * @param endgame the database to play the endgame from, or null
+     */
+    public ReinforcedMinMax(String name, Piece.PieceOwner myTurn, EndgameDatabase endgame) {
         super(name, myTurn);
         this.minMaxAIPlayer = new AlphaBetaMinMaxAIPlayer(name, myTurn);
-        this.reinforcedPlayer = new ReinforcedPlayer(name, version, myTurn);
+        this.endgame = endgame;
+        this.minMaxAIPlayer.setEndgameDatabase(endgame);
     }
 
     public ReinforcedMinMax() {
         super("ReinforcedMinMaxPlayer");
         this.minMaxAIPlayer = new AlphaBetaMinMaxAIPlayer(name, myTurn);
-        this.reinforcedPlayer = new ReinforcedPlayer(name,"Four-Player",myTurn);
+        this.endgame = EndgameDatabase.openDefault();
+        this.minMaxAIPlayer.setEndgameDatabase(endgame);
     }
+
+    /**
+     * Plays the endgame from the database at {@link EndgameDatabase#DEFAULT_PATH}, if it has been generated.
+     */
     public ReinforcedMinMax(String name, Piece.PieceOwner myTurn){
-        super(name, myTurn);
-        this.minMaxAIPlayer = new AlphaBetaMinMaxAIPlayer(name, myTurn);
-        this.reinforcedPlayer = new ReinforcedPlayer(name, "Four-Player", myTurn);
+        this(name, myTurn, EndgameDatabase.openDefault());
+    }
+
+    /**
+     * Returns the counts of the last search. Moves played from the database aren't searched.
+     */
+    @Override
+    public SearchStatistics getStatistics() {
+        return minMaxAIPlayer.getStatistics();
     }
 
     @Override
     public Move makeMove(Board board) throws InValidMove, CloneNotSupportedException {
-        int totalPieceCount = 0;
-        for (int i = 0; i < Board.BOARD_SIZE; i++) {
-            for (int j = (1 - i % 2); j < Board.BOARD_SIZE; j += 2) {
-                if (!board.isEmpty(i, j))
-                    totalPieceCount++;
-            }
-        }
-        if (totalPieceCount > 4)
+        int totalPieceCount = board.getPawnCount(Piece.PieceOwner.PLAYER1) + board.getKingCount(Piece.PieceOwner.PLAYER1)
+                + board.getPawnCount(Piece.PieceOwner.PLAYER2) + board.getKingCount(Piece.PieceOwner.PLAYER2);
+        if (endgame == null || !endgame.covers(totalPieceCount))
             return this.minMaxAIPlayer.makeMove(board);
-        return this.reinforcedPlayer.makeMove(board);
 
+        long move = this.bestEndgameMove(new Board(board));
+        return (move == MoveCodec.NONE) ? this.minMaxAIPlayer.makeMove(board) : MoveCodec.toMove(move);
+    }
+
+    /**
+     * Picks the move leading to the position that is worst for the opponent, by the database.
+     */
+    private long bestEndgameMove(Board position) {
+        long[] moves = new long[MoveGenerator.MAX_MOVES];
+        int count = position.generateMoves(moves);
+        long best = MoveCodec.NONE;
+        int bestRank = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            long undoInfo = position.doMove(moves[i]);
+            Piece.PieceOwner winner = position.isGameOver();
+            int value;
+            if (winner != null)
+                value = (winner == position.getTurn()) ? 1 : -1; // over: won or lost right away
+            else
+                value = endgame.probe(position);
+            position.undoMove(undoInfo);
+            if (value == EndgameDatabase.UNKNOWN)
+                return MoveCodec.NONE;
+
+            // the opponent is to move: their quickest loss first, then a draw, then their slowest win
+            int distance = EndgameDatabase.distance(value);
+            int rank = EndgameDatabase.isLoss(value) ? Byte.MAX_VALUE - distance
+                    : EndgameDatabase.isWin(value) ? distance - Byte.MAX_VALUE : 0;
+            if (rank > bestRank) {
+                bestRank = rank;
+                best = moves[i];
+            }
+        }
+        return best;
     }
 }
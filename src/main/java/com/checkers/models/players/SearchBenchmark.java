@@ -0,0 +1,99 @@
+package com.checkers.models.players;
+
+import com.checkers.models.Board;
+import com.checkers.models.engine.MoveGenerator;
+import com.checkers.models.exceptions.InValidMove;
+import com.checkers.models.move.Move;
+import com.checkers.models.piece.Piece;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures how the parallel alpha-beta search (see {@link AlphaBetaMinMaxAIPlayer#setPool}) scales with the number
+ * of threads: the same positions are searched with 1, 2, 4... threads and the time, the speedup over one thread and
+ * whether every thread count picked the same moves are printed.
+ * <p>
+ * Run it with the number of positions (20 by default), the search depth (8) and the most threads to try (the number
+ * of processors). The speedup only means something on a machine with at least as many cores as threads: on a
+ * single core every thread count takes about as long, and only the agreement of the moves is checked.
+ * </p>
+ */
+public class SearchBenchmark {
+    public static final long SEED = 42;
+    public static final int OPENING_PLIES = 6; // random moves from the start to each position
+
+    public static void main(String[] args) throws InValidMove, CloneNotSupportedException {
+        int positions = (args.length > 0) ? Integer.parseInt(args[0]) : 20;
+        int depth = (args.length > 1) ? Integer.parseInt(args[1]) : 8;
+        int maxThreads = (args.length > 2) ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        System.out.println(Runtime.getRuntime().availableProcessors() + " processors, " + positions
+                + " positions, depth " + depth);
+        System.out.print(new SearchBenchmark().parallelSpeedup(positions, depth, maxThreads));
+    }
+
+    /**
+     * Searches the same positions with 1, 2, 4... threads up to maxThreads and reports the time taken and the
+     * speedup over one thread, and whether every thread count picked the same moves.
+     *
+     * @param positions number of positions, reached by random moves from the start
+     * @param depth     search depth of the player
+     * @param maxThreads the largest pool to try
+     */
+    public String parallelSpeedup(int positions, int depth, int maxThreads) throws InValidMove, CloneNotSupportedException {
+        List<Board> boards = randomPositions(positions);
+        String report = "";
+        long baseTime = 0;
+        List<Move> baseMoves = null;
+
+        search(boards, depth, 1, new ArrayList<>()); // let the JIT compile the search first
+
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            List<Move> moves = new ArrayList<>();
+            long time = search(boards, depth, threads, moves);
+
+            if (baseMoves == null) {
+                baseTime = time;
+                baseMoves = moves;
+            }
+            report += String.format("threads: %d, time: %d ms, speedup: %.2f, same moves: %b\n",
+                    threads, time / 1_000_000, (double) baseTime / time, moves.equals(baseMoves));
+        }
+        return report;
+    }
+
+    private long search(List<Board> boards, int depth, int threads, List<Move> moves) throws InValidMove, CloneNotSupportedException {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        AlphaBetaMinMaxAIPlayer player = new AlphaBetaMinMaxAIPlayer("AlphaBeta", Piece.PieceOwner.PLAYER1, depth);
+        player.setPool(pool);
+        player.setSeed(SEED);
+
+        long start = System.nanoTime();
+        for (Board board : boards) {
+            player.myTurn = board.getTurn();
+            moves.add(player.makeMove(board));
+        }
+        long time = System.nanoTime() - start;
+        pool.shutdown();
+        return time;
+    }
+
+    private List<Board> randomPositions(int positions) {
+        Random random = new Random(SEED);
+        long[] moves = new long[MoveGenerator.MAX_MOVES];
+        List<Board> boards = new ArrayList<>();
+
+        while (boards.size() < positions) {
+            Board board = new Board();
+            for (int ply = 0; ply < OPENING_PLIES && board.isGameOver() == null; ply++) {
+                int count = board.generateMoves(moves);
+                board.doMove(moves[random.nextInt(count)]);
+            }
+            if (board.isGameOver() == null)
+                boards.add(board);
+        }
+        return boards;
+    }
+}
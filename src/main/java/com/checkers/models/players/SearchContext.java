@@ -0,0 +1,29 @@
+package com.checkers.models.players;
+
+import com.checkers.models.engine.MoveBuffer;
+import com.checkers.models.engine.MoveOrdering;
+import com.checkers.models.engine.SearchStatistics;
+import com.checkers.models.engine.TranspositionTable;
+
+import java.util.Random;
+
+/**
+ * The scratch state one thread needs to run a search: its move buffers and their ordering, random generator
+ * and transposition table entry, and its counters. Search threads never share one.
+ */
+final class SearchContext {
+    final MoveBuffer moves = new MoveBuffer();
+    final MoveOrdering ordering = new MoveOrdering();
+    final Random random = new Random();
+    final TranspositionTable.Entry entry = new TranspositionTable.Entry();
+    final SearchStatistics.Counters counters;
+    long reSearches;
+    /**
+     * Set from another thread to stop this search.
+     */
+    volatile boolean aborted;
+
+    SearchContext(SearchStatistics.Counters counters) {
+        this.counters = counters;
+    }
+}
@@ -0,0 +1,17 @@
+package com.checkers.models.players.eval;
+
+import com.checkers.models.Board;
+import com.checkers.models.piece.Piece;
+
+/**
+ * Scores positions for the AI players. The higher the score the better the position is for the given player.
+ * Evaluators are called from every search thread at once, so they must not keep any state between calls.
+ */
+public interface Evaluator {
+    /**
+     * @param board  the position
+     * @param player the player the position is scored for
+     * @return the score, Double.MAX_VALUE if the opponent has no piece left and -Double.MAX_VALUE if the player has none
+     */
+    double evaluate(Board board, Piece.PieceOwner player);
+}
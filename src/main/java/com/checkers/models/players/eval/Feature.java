@@ -0,0 +1,32 @@
+package com.checkers.models.players.eval;
+
+/**
+ * The features a {@link WeightedEvaluator} adds up. Each one is counted for the player the position is
+ * scored for minus the same count for the opponent.
+ */
+public enum Feature {
+    /**
+     * One per piece, pawn or king.
+     */
+    MATERIAL,
+    /**
+     * One per king, on top of its material.
+     */
+    KING,
+    /**
+     * The number of rows each pawn has moved towards its crowning row.
+     */
+    ADVANCEMENT,
+    /**
+     * One per piece still on the row its player started from, which keeps the opponent from crowning.
+     */
+    BACK_ROW,
+    /**
+     * The number of steps and single jumps the pieces could make.
+     */
+    MOBILITY,
+    /**
+     * For each piece, the number of steps from the nearest edges of the board.
+     */
+    CENTER
+}
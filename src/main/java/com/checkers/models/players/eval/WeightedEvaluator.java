@@ -0,0 +1,91 @@
+package com.checkers.models.players.eval;
+
+import com.checkers.models.Board;
+import com.checkers.models.engine.MoveGenerator;
+import com.checkers.models.piece.Piece;
+
+/**
+ * Scores a position as a weighted sum of {@link Feature}s. Evaluators are immutable: <code>with</code> returns a
+ * new one with another weight.
+ * <p>
+ * Material, kings, the back row, advancement and center control are all read from the counters the board keeps
+ * up to date as moves are made (see {@link com.checkers.models.engine.PieceSquare}), so they take constant time.
+ * Only mobility needs a pass over the pieces, and it is only counted if it has a weight.
+ * </p>
+ */
+public final class WeightedEvaluator implements Evaluator {
+    private final double[] weights;
+
+    public WeightedEvaluator() {
+        this(new double[Feature.values().length]);
+    }
+
+    private WeightedEvaluator(double[] weights) {
+        this.weights = weights;
+    }
+
+    /**
+     * Pawns are worth one and kings two.
+     */
+    public static WeightedEvaluator material() {
+        return new WeightedEvaluator().with(Feature.MATERIAL, 1).with(Feature.KING, 1);
+    }
+
+    /**
+     * Material, with every piece guarding the back row worth three more.
+     */
+    public static WeightedEvaluator backRow() {
+        return material().with(Feature.BACK_ROW, 3);
+    }
+
+    /**
+     * Returns an evaluator with the same weights as this one but for the given feature.
+     */
+    public WeightedEvaluator with(Feature feature, double weight) {
+        double[] copy = weights.clone();
+        copy[feature.ordinal()] = weight;
+        return new WeightedEvaluator(copy);
+    }
+
+    public double getWeight(Feature feature) {
+        return weights[feature.ordinal()];
+    }
+
+    @Override
+    public double evaluate(Board board, Piece.PieceOwner player) {
+        Piece.PieceOwner other = (player == Piece.PieceOwner.PLAYER1) ? Piece.PieceOwner.PLAYER2 : Piece.PieceOwner.PLAYER1;
+        if (board.getPieces(other) == 0)
+            return Double.MAX_VALUE;
+        if (board.getPieces(player) == 0)
+            return -Double.MAX_VALUE;
+
+        int kings = board.getKingCount(player) - board.getKingCount(other);
+        int pieces = board.getPawnCount(player) - board.getPawnCount(other) + kings;
+        double score = weights[Feature.MATERIAL.ordinal()] * pieces
+                + weights[Feature.KING.ordinal()] * kings
+                + weights[Feature.BACK_ROW.ordinal()] * (board.getBackRowCount(player) - board.getBackRowCount(other))
+                + weights[Feature.ADVANCEMENT.ordinal()] * (board.getAdvancement(player) - board.getAdvancement(other))
+                + weights[Feature.CENTER.ordinal()] * (board.getCentralization(player) - board.getCentralization(other));
+
+        double mobility = weights[Feature.MOBILITY.ordinal()];
+        if (mobility != 0)
+            score += mobility * (mobility(board, player) - mobility(board, other));
+
+        return score;
+    }
+
+    private static int mobility(Board board, Piece.PieceOwner owner) {
+        Piece.PieceOwner other = (owner == Piece.PieceOwner.PLAYER1) ? Piece.PieceOwner.PLAYER2 : Piece.PieceOwner.PLAYER1;
+        return MoveGenerator.countMobility(owner, board.getPawns(owner), board.getKings(owner), board.getPieces(other));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("WeightedEvaluator[");
+        for (Feature feature : Feature.values()) {
+            if (weights[feature.ordinal()] != 0)
+                sb.append(sb.charAt(sb.length() - 1) == '[' ? "" : ", ").append(feature).append('=').append(weights[feature.ordinal()]);
+        }
+        return sb.append(']').toString();
+    }
+}
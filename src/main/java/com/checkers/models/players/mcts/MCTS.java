@@ -1,16 +1,23 @@
 package com.checkers.models.players.mcts;
 
-import com.checkers.controller.Game;
 import com.checkers.models.Board;
-import com.checkers.models.exceptions.InValidMove;
+import com.checkers.models.engine.MoveCodec;
+import com.checkers.models.engine.MoveGenerator;
+import com.checkers.models.engine.SearchStatistics;
+import com.checkers.models.engine.TimeManager;
 import com.checkers.models.move.Move;
 import com.checkers.models.piece.Pawn;
 import com.checkers.models.piece.Piece;
-import com.checkers.models.players.Player;
-import com.checkers.models.players.RandomPlayer;
 
-import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
 
 
 /**
@@ -18,134 +25,432 @@ import java.util.ArrayList;
  * It selects, expands, Simulate and Updates the tree.
  * */
 public class MCTS {
-    LocalTime stTime;
-    final int MAX_SECONDS = 5;
+    /**
+     * How several threads share the work. With ROOT parallelism every thread grows its own tree and the
+     * statistics of the root moves are added up at the end. With TREE parallelism the threads grow a single tree.
+     */
+    public enum Parallelism {ROOT, TREE}
 
     private int numberOfSimulations = 10;
+    private int threads = 1;
+    private Parallelism parallelism = Parallelism.TREE;
+    private ForkJoinPool pool;
+    private final TimeManager time = new TimeManager(1); // a playout is long enough to read the clock every time
+    private int playoutLimit = 0;
+    private RolloutEngine.Policy rolloutPolicy = RolloutEngine.Policy.RANDOM;
+    private int rolloutMaxPlies = RolloutEngine.DEFAULT_MAX_PLIES;
+    private final AtomicInteger playouts = new AtomicInteger();
+    private final AtomicLong rollouts = new AtomicLong();
+    private long searchNanos;
+    private final SearchStatistics statistics = new SearchStatistics();
+    private SearchStatistics.Counters[] counters = {statistics.newCounters()}; // one per thread
+    private NodeArena[] rootTrees;
+    private double wideningConstant = 0;
+    private double wideningExponent = 0.5;
 
     public MCTS(){}
     public MCTS(int numberOfSimulations){
         this.numberOfSimulations = numberOfSimulations;
     }
 
-    public Move getBestMove(MCTSNode node) throws InValidMove, CloneNotSupportedException {
-        this.stTime = LocalTime.now();
-        int noPlays =0;
-        while(stTime.plusSeconds(MAX_SECONDS).compareTo(LocalTime.now())==1){ //While time isn't up look for a good move
-            MCTSNode promisingNode = this.selectBestNode(node);
-            this.expandNode(promisingNode);
+    /**
+     * Sets the number of threads searching for a move and how they share the work.
+     */
+    public void setThreads(int threads, Parallelism parallelism) {
+        if (threads < 1) throw new IllegalArgumentException("A search needs at least one thread.");
+        this.threads = threads;
+        this.parallelism = parallelism;
+        this.pool = (threads > 1) ? new ForkJoinPool(threads) : null;
+        for (SearchStatistics.Counters threadCounters : counters)
+            statistics.release(threadCounters);
+        counters = new SearchStatistics.Counters[threads];
+        for (int i = 0; i < threads; i++)
+            counters[i] = statistics.newCounters();
+    }
 
-            MCTSNode cpPromisingNode = promisingNode;
-            if(cpPromisingNode.getChildren().size()!=0)
-                cpPromisingNode = cpPromisingNode.getRandomChild();
+    /**
+     * Returns the counts of the last search, see {@link SearchStatistics}. A node is an iteration of the search,
+     * and the deepest ply the deepest node it simulated from.
+     */
+    public SearchStatistics getStatistics() {
+        return statistics;
+    }
 
-            Piece.PieceOwner winner = this.simulateGame(cpPromisingNode);
-            this.backPropagate(cpPromisingNode,winner,node.getState().getBoard().getTurn());
+    /**
+     * Sets how long a search may take, 5 seconds by default.
+     */
+    public void setTimeLimit(long millis) {
+        time.setMoveTime(millis);
+    }
 
-            noPlays++;
+    /**
+     * Returns the clock of the search, e.g. to play on a game clock or to stop a search from another thread.
+     */
+    public TimeManager getTimeManager() {
+        return time;
+    }
 
-        }
+    /**
+     * Stops the search after the given number of iterations, counted over all threads, even if there is time left.
+     *
+     * @param playoutLimit the number of iterations, or 0 to search until the time is up
+     */
+    public void setPlayoutLimit(int playoutLimit) {
+        this.playoutLimit = playoutLimit;
+    }
 
-        int bestMoveIndex = this.selectBestMove(node,noPlays);
-        return node.getState().getBoard().reachablePositionsByPlayer().get(bestMoveIndex);
+    /**
+     * Sets how the simulations play their games out.
+     *
+     * @param maxPlies the number of moves after which a simulated game is called a draw
+     */
+    public void setRollouts(RolloutEngine.Policy policy, int maxPlies) {
+        this.rolloutPolicy = policy;
+        this.rolloutMaxPlies = maxPlies;
+    }
 
+    /**
+     * Turns progressive widening on: a node visited n times may have at most ceil(constant * (n + 1)^exponent)
+     * children, the moves with the best prior (captures, then crowning moves) getting theirs first.
+     *
+     * @param constant the constant, 0 to let every node have a child for each of its moves
+     * @param exponent the exponent, usually between 0.25 and 0.5
+     */
+    public void setProgressiveWidening(double constant, double exponent) {
+        this.wideningConstant = constant;
+        this.wideningExponent = exponent;
     }
 
+    /**
+     * Returns the number of simulated games played per second during the last search, over all threads.
+     */
+    public double getPlayoutsPerSecond() {
+        return (searchNanos == 0) ? 0 : rollouts.get() / (searchNanos / 1e9);
+    }
+
+    /**
+     * Returns the number of iterations of the last search, over all threads.
+     */
+    public int getPlayouts() {
+        return playouts.get();
+    }
 
-    private MCTSNode selectBestNode(MCTSNode node){
-        MCTSNode cpNode = node;
-        while(cpNode.getChildren().size()!=0){
-            cpNode = UTC.findBestNodeWithUCT(cpNode);
+    /**
+     * Searches the tree for the best move from its root, growing the tree on the way.
+     */
+    public Move getBestMove(NodeArena tree) {
+        time.start();
+        this.startSearch(tree);
+
+        if (threads == 1) {
+            this.search(tree, counters[0]);
+        } else if (parallelism == Parallelism.TREE) {
+            this.runInParallel(i -> tree);
+        } else {
+            if (rootTrees == null || rootTrees.length != threads || rootTrees[0].capacity() != tree.capacity() / threads)
+                rootTrees = new NodeArena[threads];
+            this.runInParallel(i -> {
+                if (rootTrees[i] == null)
+                    rootTrees[i] = new NodeArena(Math.max(tree.capacity() / threads, 1));
+                rootTrees[i].reset(tree.rootBoard());
+                return rootTrees[i];
+            });
+            this.mergeRoots(tree, rootTrees);
         }
-        return  cpNode;
+
+        this.searchNanos = time.elapsedNanos();
+        statistics.stop();
+        return this.bestMove(tree);
+
     }
+
     /**
-     * Selects the best out of the possible moves for the root node.
-     *
-     * @param root The root of the tree.
-     * @param noPlays The total number games simulated.
-     * @return The index of the best move.
-     * */
-    private int selectBestMove(MCTSNode root,int noPlays){
+     * Grows the tree on the opponent's time, its root being the position they have to move from. It runs until the
+     * time manager is stopped, which the caller has started with {@link TimeManager#startPondering()}. With root
+     * parallelism it runs on the calling thread only, as the trees of the other threads would be thrown away.
+     */
+    public void ponder(NodeArena tree) {
+        this.startSearch(tree);
+        if (threads > 1 && parallelism == Parallelism.TREE)
+            this.runInParallel(i -> tree);
+        else
+            this.search(tree, counters[0]);
+        this.searchNanos = time.elapsedNanos();
+        statistics.stop();
+    }
 
-        int bestMvIndex=0;
-        double winRate=0;
-        int bestMvPlays =0;
-        double bestScore = Double.MIN_VALUE;
+    /**
+     * Returns the best move from the root of the tree as it stands, without searching, e.g. once a tree grown while
+     * pondering has enough playouts.
+     */
+    public Move bestMove(NodeArena tree) {
+        int bestMove = this.selectBestMove(tree,playouts.get());
+        return (bestMove == NodeArena.NONE) ? null : MoveCodec.toMove(tree.move(bestMove));
+    }
 
+    private void startSearch(NodeArena tree) {
+        statistics.start();
+        this.playouts.set(0);
+        this.rollouts.set(0);
+        if (tree.childCount(NodeArena.ROOT) == 0)
+            tree.setProof(NodeArena.ROOT, NodeArena.UNPROVEN); // a kept root whose children were left behind
+    }
 
-        for (int i = 0; i < root.getChildren().size(); i++) {
-            MCTSNode child = root.getChildren().get(i);
+    /**
+     * Runs the search on every thread of the pool, each one on the tree it is given.
+     */
+    private void runInParallel(IntFunction<NodeArena> tree) {
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            int index = i;
+            tasks.add(() -> {
+                this.search(tree.apply(index), counters[index]);
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> task : pool.invokeAll(tasks))
+                task.get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-            double childWins = child.getState().getWins();
-            double childPlays = child.getState().getPlays();
+    /**
+     * Adds the statistics of the root moves of the trees grown by root parallelism to the main tree.
+     */
+    private void mergeRoots(NodeArena tree, NodeArena[] trees) {
+        Board position = new Board(tree.rootBoard());
+        tree.expand(NodeArena.ROOT, position, new long[MoveGenerator.MAX_MOVES]);
+        while (tree.tryChild(NodeArena.ROOT) != NodeArena.NONE) ; // every root move gets its node
+
+        for (NodeArena other : trees) {
+            tree.update(NodeArena.ROOT, other.visits(NodeArena.ROOT), other.wins(NodeArena.ROOT));
+            for (int child = other.firstChild(NodeArena.ROOT); child != NodeArena.NONE; child = other.nextSibling(child)) {
+                int same = tree.findChild(NodeArena.ROOT, other.move(child));
+                if (same == NodeArena.NONE)
+                    continue;
+                tree.update(same, other.visits(child), other.wins(child));
+                if (other.proof(child) != NodeArena.UNPROVEN)
+                    tree.setProof(same, other.proof(child));
+            }
+        }
+    }
 
-            if(childPlays==0)
-                continue;
+    private void search(NodeArena tree, SearchStatistics.Counters counters) {
+        RolloutEngine rollout = new RolloutEngine(rolloutPolicy, rolloutMaxPlies);
+        Board board = new Board();
+        long[] buffer = new long[MoveGenerator.MAX_MOVES];
+
+        // once the root is proven the best move is known
+        while(tree.proof(NodeArena.ROOT)==NodeArena.UNPROVEN && this.nextPlayout()){ //While time isn't up look for a good move
+            board.copyPosition(tree.rootBoard());
+            int promisingNode = this.selectBestNode(tree, board, buffer);
+            counters.nodes++;
+            int ply = 0;
+            for (int node = promisingNode; node != NodeArena.ROOT; node = tree.parent(node))
+                ply++;
+            if (ply > counters.maxPly)
+                counters.maxPly = ply;
+
+            Piece.PieceOwner winner;
+            int proof = tree.proof(promisingNode);
+            if(proof==NodeArena.UNPROVEN) {
+                winner = this.simulateGame(board, rollout);
+                counters.playouts = rollout.getPlayouts(); // the engine only plays for this search
+            } else // no need to play a proven position out
+                winner = (proof==NodeArena.PROVEN_WIN) ? opponent(board.getTurn()) : board.getTurn();
+            this.backPropagate(tree,promisingNode,winner,board.getTurn());
+        }
+        rollouts.addAndGet(rollout.getPlayouts());
+    }
 
+    /**
+     * Counts one more playout if the budget allows it.
+     */
+    private boolean nextPlayout() {
+        if (time.shouldStop())
+            return false;
+        int n;
+        do {
+            n = playouts.get();
+            if (playoutLimit != 0 && n >= playoutLimit)
+                return false;
+        } while (!playouts.compareAndSet(n, n + 1));
+        return true;
+    }
 
-//            if(childWins/childPlays > winRate && bestMvPlays>childPlays)
-//            {
-//                winRate = childWins/childPlays;
-//                bestMvPlays = childPlays;
-//                bestMvIndex = i;
-//
-//            }
+    /**
+     * Walks down the tree to the node to simulate, playing the moves of the path on the given board.
+     * A node is expanded the first time the walk gets past it, and the walk stops at the first node given a
+     * new child: the new child is the one simulated. Otherwise it goes on with the UCT pick among the children
+     * whose result isn't proven yet. The walk also stops at a proven node: the end of the game, or a node all of
+     * whose children turned out to be proven.
+     *
+     * @param board the position of the root, left at the position of the returned node
+     * @return the node to simulate
+     */
+    private int selectBestNode(NodeArena tree, Board board, long[] buffer){
+        int cpNode = NodeArena.ROOT;
+        tree.addVirtualLoss(cpNode);
+        while(true){
+            if(tree.proof(cpNode)!=NodeArena.UNPROVEN)
+                return cpNode;
+            if(!tree.isExpanded(cpNode)){
+                Piece.PieceOwner winner = board.isGameOver();
+                if(winner!=null){
+                    this.prove(tree, cpNode, (winner==board.getTurn()) ? NodeArena.PROVEN_LOSS : NodeArena.PROVEN_WIN);
+                    return cpNode;
+                }
+                tree.expand(cpNode, board, buffer);
+            }
 
-            if(childWins/childPlays  > bestScore){
-                bestScore = childWins/childPlays ;
-                bestMvIndex =i;
+            if(tree.untried(cpNode)!=0 && tree.childCount(cpNode) < this.widening(tree.visits(cpNode))){
+                int child = tree.tryChild(cpNode);
+                if(child!=NodeArena.NONE){
+                    tree.addVirtualLoss(child);
+                    board.doMove(tree.move(child));
+                    return child;
+                }
+            }
+            if(tree.childCount(cpNode)==0)
+                return cpNode; // a leaf: a node being expanded by another thread, or a full tree
+
+            int next = UTC.findBestNodeWithUCT(tree, cpNode);
+            if(next==NodeArena.NONE){
+                // every child is proven: try another move whatever the widening says, or the node is proven too
+                next = tree.tryChild(cpNode);
+                if(next==NodeArena.NONE){
+                    this.proveFromChildren(tree, cpNode);
+                    return cpNode;
+                }
             }
+            cpNode = next;
+            tree.addVirtualLoss(cpNode);
+            board.doMove(tree.move(cpNode));
+        }
+    }
 
+    /**
+     * Marks a node as proven and passes the proof on to its ancestors: a node is a loss for the player who moved
+     * to it as soon as one of its children is a proven win, and a win once all its moves are tried and every child
+     * is a proven loss.
+     */
+    private void prove(NodeArena tree, int node, int proof) {
+        tree.setProof(node, proof);
+        int parent = tree.parent(node);
+        while (parent != NodeArena.NONE) {
+            if (proof == NodeArena.PROVEN_WIN)
+                proof = NodeArena.PROVEN_LOSS;
+            else if (this.allChildrenLost(tree, parent))
+                proof = NodeArena.PROVEN_WIN;
+            else
+                return;
+            tree.setProof(parent, proof);
+            parent = tree.parent(parent);
         }
+    }
 
-        return bestMvIndex;
-        
+    private void proveFromChildren(NodeArena tree, int node) {
+        for (int child = tree.firstChild(node); child != NodeArena.NONE; child = tree.nextSibling(child)) {
+            if (tree.proof(child) == NodeArena.PROVEN_WIN) {
+                this.prove(tree, node, NodeArena.PROVEN_LOSS);
+                return;
+            }
+        }
+        if (this.allChildrenLost(tree, node))
+            this.prove(tree, node, NodeArena.PROVEN_WIN);
+    }
+
+    private boolean allChildrenLost(NodeArena tree, int node) {
+        if (!tree.isExpanded(node) || tree.untried(node) != 0 || tree.childCount(node) == 0)
+            return false;
+        for (int child = tree.firstChild(node); child != NodeArena.NONE; child = tree.nextSibling(child)) {
+            if (tree.proof(child) != NodeArena.PROVEN_LOSS)
+                return false;
+        }
+        return true;
     }
 
     /**
-     * Creates nodes based on the possible moves from that state. The newly created nodes
-     * will have the same parent and are different from each other by the move made to reach their state from
-     * their parent.
+     * Returns how many children a node visited the given number of times may have.
+     */
+    private int widening(int visits) {
+        if (wideningConstant <= 0)
+            return Integer.MAX_VALUE;
+        return (int) Math.ceil(wideningConstant * Math.pow(visits + 1, wideningExponent));
+    }
+
+    /**
+     * Selects the best out of the possible moves for the root node. A move proven to win is taken at once, and
+     * moves proven to lose are only taken if nothing else is left: a move not played out yet, even one the tree has
+     * no child for, comes before them.
      *
-     * @param parent The parent node from which they are created.
+     * @param tree The tree.
+     * @param noPlays The total number games simulated.
+     * @return The best child of the root, or NONE if the root has no children.
      * */
-    private void expandNode(MCTSNode parent) throws InValidMove {
-        ArrayList<Move> possibleMoves = parent.getState().getBoard().reachablePositionsByPlayer();
-
-        for (Move mv :
-                possibleMoves) {
-            Board board = new Board(parent.getState().getBoard());
-            board.makeMove(mv);
-            NodeState childState = new NodeState(board);
-            MCTSNode child = new MCTSNode(childState,parent);
-            parent.addChild(child);
+    private int selectBestMove(NodeArena tree,int noPlays){
+        int bestMv=NodeArena.NONE;
+        int lostMv=NodeArena.NONE;
+        double bestScore = Double.NEGATIVE_INFINITY;
+
+        for (int i = tree.firstChild(NodeArena.ROOT); i != NodeArena.NONE; i = tree.nextSibling(i)) {
+            int proof = tree.proof(i);
+            if(proof==NodeArena.PROVEN_WIN)
+                return i;
+            if(proof==NodeArena.PROVEN_LOSS){
+                if(lostMv==NodeArena.NONE)
+                    lostMv = i;
+                continue;
+            }
+            if(bestMv==NodeArena.NONE)
+                bestMv = i;
+
+            double childWins = tree.wins(i);
+            double childPlays = tree.visits(i);
+
+            if(childPlays==0)
+                continue;
+
+            if(childWins/childPlays  > bestScore){
+                bestScore = childWins/childPlays ;
+                bestMv =i;
+            }
+
         }
 
+        if(bestMv==NodeArena.NONE && lostMv!=NodeArena.NONE){
+            int untried = tree.tryChild(NodeArena.ROOT); // a move the search never got to
+            bestMv = (untried==NodeArena.NONE)? lostMv : untried;
+        }
+        return bestMv;
+        
     }
+
     /**
      * Simulates the game to know what the end state of the node will be.
      *
-     * @param node The node from which we will start our simulation.
-     * @return The winner of the simulation.
+     * @param board The position from which we will start our simulation.
+     * @param rollout The engine playing the simulated games.
+     * @return The winner of most simulations, or null if they are even.
      * */
-    private Piece.PieceOwner simulateGame(MCTSNode node) throws InValidMove, CloneNotSupportedException {
+    private Piece.PieceOwner simulateGame(Board board, RolloutEngine rollout) {
         int player1 = 0, player2 = 0;
 
         for (int i = 0; i < this.numberOfSimulations; i++) {
-            Game simulation = new Game(new RandomPlayer("P1", Piece.PieceOwner.PLAYER1),
-                    new RandomPlayer("P2", Piece.PieceOwner.PLAYER2),
-                    new Board(node.getState().getBoard()));
-            Player winner = simulation.playWithoutDebugging();
+            Piece.PieceOwner winner = rollout.play(board);
 
-            if(winner.myTurn == Piece.PieceOwner.PLAYER1)
+            if(winner == Piece.PieceOwner.PLAYER1)
                 player1++;
-            else
+            else if(winner == Piece.PieceOwner.PLAYER2)
                 player2++;
 
         }
 
-        return (player1>=player2)? Piece.PieceOwner.PLAYER1: Piece.PieceOwner.PLAYER2;
+        if(player1 == player2)
+            return null;
+        return (player1>player2)? Piece.PieceOwner.PLAYER1: Piece.PieceOwner.PLAYER2;
     }
 //    private Piece.PieceOwner simulateGame(MCTSNode node) {
 //        int player1=0;
@@ -178,23 +483,27 @@ public class MCTS {
 
 
     /**
-     * Updates all of a node's parents with the result obtained from a simulation.
+     * Updates all of a node's parents with the result obtained from a simulation. Each node counts the win for
+     * the player whose move led to it.
      *
      * @param cpPromisingNode The node and its parents are going to be updated.
      * @param winner The result from the simulation.
+     * @param turn The player to move at the node.
      * */
-    private void backPropagate(MCTSNode cpPromisingNode, Piece.PieceOwner winner,Piece.PieceOwner myTurn) {
-        MCTSNode temp = cpPromisingNode;
-
-        while(temp!=null){
-            temp.incrementPlays();
-            if(myTurn.equals(winner)){
-                temp.incrementWins();
-            }
-            temp = temp.getParent();
+    private void backPropagate(NodeArena tree, int cpPromisingNode, Piece.PieceOwner winner,Piece.PieceOwner turn) {
+        int temp = cpPromisingNode;
+        Piece.PieceOwner mover = opponent(turn);
+
+        while(temp!=NodeArena.NONE){
+            tree.update(temp, 1, mover.equals(winner) ? 1 : 0);
+            tree.removeVirtualLoss(temp);
+            temp = tree.parent(temp);
+            mover = opponent(mover);
         }
     }
 
-
+    private static Piece.PieceOwner opponent(Piece.PieceOwner player) {
+        return (player == Piece.PieceOwner.PLAYER1) ? Piece.PieceOwner.PLAYER2 : Piece.PieceOwner.PLAYER1;
+    }
 
 }
@@ -1,14 +1,39 @@
 package com.checkers.models.players.mcts;
 
 import com.checkers.models.Board;
+import com.checkers.models.book.OpeningBook;
+import com.checkers.models.engine.MoveCodec;
+import com.checkers.models.engine.SearchStatistics;
 import com.checkers.models.exceptions.InValidMove;
 import com.checkers.models.move.Move;
 import com.checkers.models.piece.Piece;
+import com.checkers.models.players.InstrumentedPlayer;
 import com.checkers.models.players.Player;
+import com.checkers.models.players.PonderingPlayer;
 
-public class MCTSPlayer extends Player {
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Player searching with {@link MCTS}. The tree of a search is kept for the next move: once the opponent has replied,
+ * the node of the position we are given is found two plies below the old root and the search goes on from it.
+ * <p>
+ * While pondering, the subtree of the move we played becomes the tree and is grown on the opponent's time. The reply
+ * is then found one ply below its root, and if its node already has as many playouts as the last search made, its
+ * best move is played without searching.
+ * </p>
+ */
+public class MCTSPlayer extends Player implements PonderingPlayer, InstrumentedPlayer {
+    public static final int DEFAULT_MAX_RETAINED_NODES = 200_000;
 
     MCTS mcts;
+    private int treeCapacity = NodeArena.DEFAULT_CAPACITY;
+    private NodeArena tree;
+    private NodeArena spare; // the next tree, the kept part of the old one is copied to it
+    private int maxRetainedNodes = DEFAULT_MAX_RETAINED_NODES;
+    private int retainedNodes;
+    private OpeningBook book;
+    private Thread ponderThread; // guarded by this: pondering is started and stopped from different threads
+    private int lastPlayouts; // playouts of the last search made on our time
 
     public MCTSPlayer(){
         super("MCTS_Player");
@@ -18,10 +43,160 @@ public class MCTSPlayer extends Player {
         super(name,turn);
         mcts = new MCTS();
     }
+
+    /**
+     * @param mcts the search to use, e.g. one set up with more threads or another time limit
+     */
+    public MCTSPlayer(String name, Piece.PieceOwner turn, MCTS mcts){
+        super(name,turn);
+        this.mcts = mcts;
+    }
+
+    public MCTS getMcts() {
+        return mcts;
+    }
+
+    @Override
+    public SearchStatistics getStatistics() {
+        return mcts.getStatistics();
+    }
+
+    /**
+     * Sets how many nodes of the old tree may be kept for the next move. The nodes closest to the new root are kept.
+     *
+     * @param maxRetainedNodes the number of nodes, 0 to start every move with a new tree
+     */
+    public void setMaxRetainedNodes(int maxRetainedNodes) {
+        this.maxRetainedNodes = maxRetainedNodes;
+    }
+
+    /**
+     * Sets the number of nodes the search tree can hold. Two trees of this size are kept, see {@link NodeArena}.
+     */
+    public void setTreeCapacity(int capacity) {
+        this.treeCapacity = capacity;
+        this.tree = null;
+        this.spare = null;
+    }
+
+    /**
+     * Returns the number of nodes taken over from the previous move by the last search.
+     */
+    public int getRetainedNodes() {
+        return retainedNodes;
+    }
+
+    /**
+     * Sets an opening book. Positions it holds are answered from it without searching.
+     *
+     * @param book the book, or null to search every move
+     */
+    public void setOpeningBook(OpeningBook book) {
+        this.book = book;
+    }
+
     @Override
     public Move makeMove(Board board) throws InValidMove, CloneNotSupportedException {
-        NodeState state = new NodeState(new Board(board));
-        MCTSNode root = new MCTSNode(state);
-        return this.mcts.getBestMove(root);
+        boolean pondered = this.endPondering();
+        if (book != null) {
+            long bookMove = book.probe(board, ThreadLocalRandom.current());
+            if (bookMove != MoveCodec.NONE)
+                return MoveCodec.toMove(bookMove);
+        }
+        if (tree == null) {
+            tree = new NodeArena(treeCapacity);
+            spare = new NodeArena(treeCapacity);
+        } else if (maxRetainedNodes > 0) {
+            // a pondered tree starts at the opponent's move, otherwise at ours
+            int reply = this.find(new Board(tree.rootBoard()), NodeArena.ROOT, pondered ? 1 : 2, board);
+            if (reply != NodeArena.NONE) {
+                boolean ready = pondered && tree.visits(reply) >= lastPlayouts;
+                this.keepSubtree(reply, board);
+                if (ready)
+                    return this.mcts.bestMove(tree);
+                return this.search();
+            }
+        }
+        tree.reset(board);
+        retainedNodes = 0;
+        return this.search();
+    }
+
+    private Move search() {
+        Move move = this.mcts.getBestMove(tree);
+        lastPlayouts = tree.visits(NodeArena.ROOT);
+        return move;
+    }
+
+    /**
+     * Keeps the subtree of the move we played and grows it on a thread of its own. Nothing is pondered if that
+     * move isn't in the tree, e.g. when it came from the opening book.
+     */
+    @Override
+    public synchronized void startPondering(Board position) {
+        this.endPondering();
+        if (tree == null || maxRetainedNodes == 0 || position.isGameOver() != null)
+            return;
+        int ourMove = this.find(new Board(tree.rootBoard()), NodeArena.ROOT, 1, position);
+        if (ourMove == NodeArena.NONE)
+            return;
+        this.keepSubtree(ourMove, position);
+
+        NodeArena pondered = tree;
+        mcts.getTimeManager().startPondering();
+        ponderThread = new Thread(() -> mcts.ponder(pondered), name + " ponder");
+        ponderThread.setDaemon(true);
+        ponderThread.start();
+    }
+
+    @Override
+    public void stopPondering() {
+        this.endPondering();
+    }
+
+    /**
+     * Stops the ponder search and waits for it to end.
+     *
+     * @return whether there was one, i.e. whether the tree was pondered on
+     */
+    private synchronized boolean endPondering() {
+        if (ponderThread == null)
+            return false;
+        mcts.getTimeManager().stop();
+        try {
+            ponderThread.join();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        ponderThread = null;
+        return true;
+    }
+
+    /**
+     * Makes the subtree below a node the tree.
+     */
+    private void keepSubtree(int node, Board position) {
+        retainedNodes = tree.copySubtree(node, position, maxRetainedNodes, spare);
+        NodeArena old = tree;
+        tree = spare;
+        spare = old;
+    }
+
+    /**
+     * Looks for the given position among the positions reachable from a node of the tree in the given number of plies.
+     *
+     * @param position the position of the node, left as it was
+     */
+    private int find(Board position, int node, int plies, Board board) {
+        if (plies == 0)
+            return (position.getTurn() == board.getTurn() && position.equals(board)) ? node : NodeArena.NONE;
+        for (int child = tree.firstChild(node); child != NodeArena.NONE; child = tree.nextSibling(child)) {
+            long undoInfo = position.doMove(tree.move(child));
+            int found = this.find(position, child, plies - 1, board);
+            position.undoMove(undoInfo);
+            if (found != NodeArena.NONE)
+                return found;
+        }
+        return NodeArena.NONE;
     }
 }
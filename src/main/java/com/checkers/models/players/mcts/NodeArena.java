@@ -0,0 +1,383 @@
+package com.checkers.models.players.mcts;
+
+import com.checkers.models.Board;
+import com.checkers.models.engine.BitBoard;
+import com.checkers.models.engine.MoveCodec;
+import com.checkers.models.engine.MoveGenerator;
+import com.checkers.models.piece.Piece;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The MCTS tree, stored as parallel arrays indexed by node. A node is its statistics, its parent, its list of
+ * children and the encoded move (see {@link com.checkers.models.engine.MoveCodec}) leading to it. No board is
+ * kept: the position of a node is found by playing the moves from the root position down to it.
+ * <p>
+ * Nodes are expanded lazily. Expanding a node only writes its legal moves to a move pool, best prior first; a child
+ * node is created for one of these untried moves at a time, when the search first goes that way. Children are linked
+ * through their next sibling, the newest first.
+ * </p>
+ * <p>
+ * The arena has a fixed capacity and never allocates once built. The root is always node 0. Several threads can grow
+ * the same tree: counters are updated atomically, a node is expanded by a single thread and each untried move is
+ * handed out once.
+ * </p>
+ * <p>
+ * Wins are counted for the player who made the move leading to a node, so a node picks among its children with
+ * the statistics of the player to move.
+ * </p>
+ */
+public class NodeArena {
+    public static final int DEFAULT_CAPACITY = 1 << 18;
+    public static final int ROOT = 0;
+    static final int NONE = -1;
+
+    /**
+     * Proofs of a node, from the point of view of the player who made the move leading to it.
+     */
+    public static final int UNPROVEN = 0;
+    public static final int PROVEN_WIN = 1;
+    public static final int PROVEN_LOSS = -1;
+
+    private static final int UNEXPANDED = -1;
+    private static final int EXPANDING = -2;
+    private static final int MOVES_PER_NODE = 2; // size of the move pool relative to the node capacity
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final VarHandle FLOATS = MethodHandles.arrayElementVarHandle(float[].class);
+
+    private final int[] visits;
+    private final float[] wins;
+    private final int[] virtualLoss;
+    private final int[] parent;
+    private final int[] firstChild;
+    private final int[] nextSibling;
+    private final int[] childCount;
+    private final int[] untriedStart;
+    private final int[] untriedCount;
+    private final int[] proof;
+    private final long[] moves;
+    private final long[] movePool;
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicInteger poolSize = new AtomicInteger();
+    private final Board root = new Board();
+
+    public NodeArena() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity the number of nodes the tree can hold, each taking 64 bytes with its share of the move pool
+     */
+    public NodeArena(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("A tree needs room for its root.");
+        this.visits = new int[capacity];
+        this.wins = new float[capacity];
+        this.virtualLoss = new int[capacity];
+        this.parent = new int[capacity];
+        this.firstChild = new int[capacity];
+        this.nextSibling = new int[capacity];
+        this.childCount = new int[capacity];
+        this.untriedStart = new int[capacity];
+        this.untriedCount = new int[capacity];
+        this.proof = new int[capacity];
+        this.moves = new long[capacity];
+        this.movePool = new long[capacity * MOVES_PER_NODE];
+    }
+
+    /**
+     * Empties the tree and starts it again from the given position.
+     */
+    public void reset(Board position) {
+        root.copyPosition(position);
+        size.set(1);
+        poolSize.set(0);
+        init(ROOT, NONE, 0);
+    }
+
+    private void init(int node, int parentNode, long move) {
+        visits[node] = 0;
+        wins[node] = 0;
+        virtualLoss[node] = 0;
+        parent[node] = parentNode;
+        firstChild[node] = NONE;
+        nextSibling[node] = NONE;
+        childCount[node] = 0;
+        untriedStart[node] = 0;
+        untriedCount[node] = UNEXPANDED;
+        proof[node] = UNPROVEN;
+        moves[node] = move;
+    }
+
+    /**
+     * Returns the position of the root. It must not be changed, copy it to play moves on it.
+     */
+    public Board rootBoard() {
+        return root;
+    }
+
+    /**
+     * Writes the legal moves of a node to the move pool as its untried moves. Captures of more pieces and moves
+     * crowning a pawn are tried first, other moves in random order. Nothing happens if the node was already expanded,
+     * is being expanded by another thread, or if its moves don't fit in the pool any more.
+     *
+     * @param node     the node
+     * @param position the position of the node
+     * @param buffer   scratch space for the moves, at least {@link MoveGenerator#MAX_MOVES} long
+     * @return whether the node was expanded by this call
+     */
+    public boolean expand(int node, Board position, long[] buffer) {
+        if (!INTS.compareAndSet(untriedCount, node, UNEXPANDED, EXPANDING))
+            return false;
+
+        int count = position.generateMoves(buffer);
+        int start = allocate(poolSize, movePool.length, count);
+        if (start == NONE) {
+            INTS.setRelease(untriedCount, node, UNEXPANDED);
+            return false;
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = count - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            long move = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = move;
+        }
+        // untried moves are handed out from the end of their range, so sort them by ascending prior
+        int kingRow = (position.getTurn() == Piece.PieceOwner.PLAYER1) ? 0 : Board.BOARD_SIZE - 1;
+        int pawns = position.getPawns(position.getTurn());
+        for (int i = 0; i < count; i++) {
+            long move = buffer[i];
+            int prior = prior(move, pawns, kingRow);
+            int j = start + i;
+            while (j > start && prior(movePool[j - 1], pawns, kingRow) > prior) {
+                movePool[j] = movePool[j - 1];
+                j--;
+            }
+            movePool[j] = move;
+        }
+        untriedStart[node] = start;
+        INTS.setRelease(untriedCount, node, count); // publishes the moves
+        return true;
+    }
+
+    private static int prior(long move, int pawns, int kingRow) {
+        int prior = 2 * Integer.bitCount(MoveCodec.captured(move));
+        if ((pawns & BitBoard.bit(MoveCodec.from(move))) != 0 && BitBoard.row(MoveCodec.to(move)) == kingRow)
+            prior++;
+        return prior;
+    }
+
+    /**
+     * Creates the child of the best untried move of a node.
+     *
+     * @return the new child, or NONE if the node has no untried move left or the arena is full
+     */
+    public int tryChild(int node) {
+        if (untried(node) == 0)
+            return NONE;
+        int child = allocate(size, visits.length, 1);
+        if (child == NONE)
+            return NONE;
+
+        int left;
+        do {
+            left = (int) INTS.getAcquire(untriedCount, node);
+            if (left <= 0)
+                return NONE; // another thread took the last one, the slot is lost
+        } while (!INTS.compareAndSet(untriedCount, node, left, left - 1));
+
+        init(child, node, movePool[untriedStart[node] + left - 1]);
+        link(node, child);
+        return child;
+    }
+
+    private void link(int node, int child) {
+        int first;
+        do {
+            first = (int) INTS.getAcquire(firstChild, node);
+            nextSibling[child] = first;
+        } while (!INTS.compareAndSet(firstChild, node, first, child)); // publishes the child
+        INTS.getAndAdd(childCount, node, 1);
+    }
+
+    private static int allocate(AtomicInteger size, int capacity, int count) {
+        int first;
+        do {
+            first = size.get();
+            if (first + count > capacity)
+                return NONE;
+        } while (!size.compareAndSet(first, first + count));
+        return first;
+    }
+
+    /**
+     * Copies the subtree below a node into another arena, of which it becomes the root. Nodes are copied breadth
+     * first; a node whose children would go over the limit is left unexpanded.
+     *
+     * @param node     the new root
+     * @param position the position of the new root
+     * @param maxNodes the most nodes to copy
+     * @param target   the arena to copy to, emptied first
+     * @return the number of nodes copied
+     */
+    public int copySubtree(int node, Board position, int maxNodes, NodeArena target) {
+        target.reset(position);
+        target.visits[ROOT] = visits[node];
+        target.wins[ROOT] = wins[node];
+        target.proof[ROOT] = proof[node];
+        maxNodes = Math.min(maxNodes, target.visits.length);
+
+        int[] queue = new int[2 * Math.min(maxNodes, size.get())]; // pairs of (node here, node in target)
+        int head = 0, tail = 0;
+        queue[tail++] = node;
+        queue[tail++] = ROOT;
+        int copied = 1;
+        while (head < tail) {
+            int from = queue[head++], to = queue[head++];
+            int untried = untried(from);
+            if (!isExpanded(from) || copied + childCount(from) > maxNodes)
+                continue;
+            int start = allocate(target.poolSize, target.movePool.length, untried);
+            if (start == NONE)
+                continue;
+
+            System.arraycopy(movePool, untriedStart[from], target.movePool, start, untried);
+            target.untriedStart[to] = start;
+            target.untriedCount[to] = untried;
+            // walk the children oldest first so that the copies are linked in the same order
+            int last = NONE;
+            while (last != firstChild[from]) {
+                int child = firstChild[from];
+                while (nextSibling[child] != last)
+                    child = nextSibling[child];
+                int copy = allocate(target.size, target.visits.length, 1);
+                target.init(copy, to, moves[child]);
+                target.visits[copy] = visits[child];
+                target.wins[copy] = wins[child];
+                target.proof[copy] = proof(child);
+                target.link(to, copy);
+                queue[tail++] = child;
+                queue[tail++] = copy;
+                copied++;
+                last = child;
+            }
+        }
+        return copied;
+    }
+
+    /**
+     * Returns the child of a node reached by the given move, or NONE if there is none yet.
+     */
+    public int findChild(int node, long move) {
+        for (int child = firstChild(node); child != NONE; child = nextSibling(child)) {
+            if (moves[child] == move)
+                return child;
+        }
+        return NONE;
+    }
+
+    public int visits(int node) {
+        return (int) INTS.getOpaque(visits, node);
+    }
+
+    public float wins(int node) {
+        return (float) FLOATS.getOpaque(wins, node);
+    }
+
+    /**
+     * Returns the number of threads currently running a playout through this node.
+     */
+    public int virtualLoss(int node) {
+        return (int) INTS.getOpaque(virtualLoss, node);
+    }
+
+    public int parent(int node) {
+        return parent[node];
+    }
+
+    /**
+     * Returns UNPROVEN, or PROVEN_WIN or PROVEN_LOSS if the game is known to be won or lost from the node by the
+     * player whose move led to it, whatever the other player does.
+     */
+    public int proof(int node) {
+        return (int) INTS.getAcquire(proof, node);
+    }
+
+    public void setProof(int node, int value) {
+        INTS.setRelease(proof, node, value);
+    }
+
+    /**
+     * Returns whether the moves of a node have been generated.
+     */
+    public boolean isExpanded(int node) {
+        return (int) INTS.getAcquire(untriedCount, node) >= 0;
+    }
+
+    /**
+     * Returns the number of moves of a node that have no child yet.
+     */
+    public int untried(int node) {
+        return Math.max((int) INTS.getAcquire(untriedCount, node), 0);
+    }
+
+    /**
+     * Returns the number of children of a node.
+     */
+    public int childCount(int node) {
+        return (int) INTS.getAcquire(childCount, node);
+    }
+
+    /**
+     * Returns the newest child of a node, or NONE. The others follow through {@link #nextSibling(int)}.
+     */
+    public int firstChild(int node) {
+        return (int) INTS.getAcquire(firstChild, node);
+    }
+
+    public int nextSibling(int node) {
+        return nextSibling[node];
+    }
+
+    /**
+     * Returns the encoded move leading to a node.
+     */
+    public long move(int node) {
+        return moves[node];
+    }
+
+    /**
+     * Counts a playout in progress as a lost one, so that other threads look elsewhere until its result is known.
+     */
+    public void addVirtualLoss(int node) {
+        INTS.getAndAdd(virtualLoss, node, 1);
+    }
+
+    public void removeVirtualLoss(int node) {
+        INTS.getAndAdd(virtualLoss, node, -1);
+    }
+
+    /**
+     * Adds playouts and the wins among them to a node.
+     */
+    public void update(int node, int playouts, float won) {
+        INTS.getAndAdd(visits, node, playouts);
+        if (won != 0)
+            FLOATS.getAndAdd(wins, node, won);
+    }
+
+    /**
+     * Returns the number of nodes in the tree.
+     */
+    public int size() {
+        return size.get();
+    }
+
+    public int capacity() {
+        return visits.length;
+    }
+}
@@ -0,0 +1,112 @@
+package com.checkers.models.players.mcts;
+
+import com.checkers.models.Board;
+import com.checkers.models.engine.BitBoard;
+import com.checkers.models.engine.MoveCodec;
+import com.checkers.models.engine.MoveGenerator;
+import com.checkers.models.piece.Piece;
+
+import java.util.SplittableRandom;
+
+/**
+ * Plays games out from a position to see who wins them. The games are played on a single board owned by the engine
+ * with encoded moves in primitive buffers, so a playout allocates nothing. An engine isn't thread safe, every search
+ * thread needs its own.
+ */
+public class RolloutEngine {
+    public static final int DEFAULT_MAX_PLIES = 150;
+
+    /**
+     * How a playout picks its moves. RANDOM picks any legal move. LIGHT picks the jump capturing the most pieces,
+     * or a move crowning a pawn, or else a random move.
+     */
+    public enum Policy {RANDOM, LIGHT}
+
+    private final Board board = new Board();
+    private final long[] moves = new long[MoveGenerator.MAX_MOVES];
+    private final SplittableRandom random = new SplittableRandom();
+    private final Policy policy;
+    private final int maxPlies;
+
+    private long playouts;
+    private long nanos;
+
+    public RolloutEngine() {
+        this(Policy.RANDOM, DEFAULT_MAX_PLIES);
+    }
+
+    /**
+     * @param maxPlies the number of moves after which a playout that hasn't ended is called a draw
+     */
+    public RolloutEngine(Policy policy, int maxPlies) {
+        this.policy = policy;
+        this.maxPlies = maxPlies;
+    }
+
+    /**
+     * Plays a game out from the given position, which is left untouched.
+     *
+     * @return the winner, as <code>Board.isGameOver</code> would tell it, or null if the game was still going after the ply cap
+     */
+    public Piece.PieceOwner play(Board start) {
+        long startTime = System.nanoTime();
+        board.copyPosition(start);
+        Piece.PieceOwner winner = null;
+
+        for (int ply = 0; ply < maxPlies; ply++) {
+            Piece.PieceOwner turn = board.getTurn();
+            Piece.PieceOwner opponent = (turn == Piece.PieceOwner.PLAYER1) ? Piece.PieceOwner.PLAYER2 : Piece.PieceOwner.PLAYER1;
+            int count = board.generateMoves(moves);
+            boolean opponentCanMove = board.hasMoves(opponent); // stops at the first move it finds
+
+            if (count == 0 || !opponentCanMove) { // same rule as Board.isGameOver
+                boolean player1CanMove = (turn == Piece.PieceOwner.PLAYER1) ? count != 0 : opponentCanMove;
+                winner = player1CanMove ? Piece.PieceOwner.PLAYER1 : Piece.PieceOwner.PLAYER2;
+                break;
+            }
+            board.doMove(moves[choose(count)]);
+        }
+
+        playouts++;
+        nanos += System.nanoTime() - startTime;
+        return winner;
+    }
+
+    private int choose(int count) {
+        if (policy == Policy.RANDOM || count == 1)
+            return random.nextInt(count);
+
+        int kingRow = (board.getTurn() == Piece.PieceOwner.PLAYER1) ? 0 : Board.BOARD_SIZE - 1;
+        int pawns = board.getPawns(board.getTurn());
+        int best = 0, bestWeight = -1, ties = 0;
+        for (int i = 0; i < count; i++) {
+            long move = moves[i];
+            int weight = 2 * Integer.bitCount(MoveCodec.captured(move));
+            if ((pawns & BitBoard.bit(MoveCodec.from(move))) != 0 && BitBoard.row(MoveCodec.to(move)) == kingRow)
+                weight++;
+
+            if (weight > bestWeight) {
+                best = i;
+                bestWeight = weight;
+                ties = 1;
+            } else if (weight == bestWeight && random.nextInt(++ties) == 0) { // pick one of the best at random
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the number of playouts played by this engine.
+     */
+    public long getPlayouts() {
+        return playouts;
+    }
+
+    /**
+     * Returns the playouts played per second of time spent in them.
+     */
+    public double getPlayoutsPerSecond() {
+        return (nanos == 0) ? 0 : playouts / (nanos / 1e9);
+    }
+}
@@ -1,8 +1,5 @@
 package com.checkers.models.players.mcts;
 
-import java.util.Collections;
-import java.util.Comparator;
-
 public class UTC {
     public static double uctValue( // determines which child to value more.
             int parentVisit, double nodeWinScore, int nodeVisit) {
@@ -13,11 +10,26 @@ public class UTC {
                 + 1.41 * Math.sqrt(Math.log(parentVisit) / (double) nodeVisit);
     }
 
-    public static MCTSNode findBestNodeWithUCT(MCTSNode node) {
-        int parentVisit = node.getState().getPlays();
-        return Collections.max(
-                node.getChildren(),
-                Comparator.comparing(c -> uctValue(parentVisit,
-                        c.getState().getWins(), c.getState().getPlays())));
+    /**
+     * Picks the child to explore. Playouts still running through a node count as visits without a win
+     * (virtual loss), which spreads the threads sharing a tree over different children. Children whose
+     * result is already proven are skipped.
+     *
+     * @return the child, or NONE if every child is proven
+     */
+    public static int findBestNodeWithUCT(NodeArena tree, int node) {
+        int parentVisit = tree.visits(node) + tree.virtualLoss(node);
+        int best = NodeArena.NONE;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int child = tree.firstChild(node); child != NodeArena.NONE; child = tree.nextSibling(child)) {
+            if (tree.proof(child) != NodeArena.UNPROVEN)
+                continue;
+            double value = uctValue(parentVisit, tree.wins(child), tree.visits(child) + tree.virtualLoss(child));
+            if (value > bestValue) {
+                best = child;
+                bestValue = value;
+            }
+        }
+        return best;
     }
 }
@@ -1,7 +1,13 @@
 package com.checkers.models;
+import com.checkers.models.engine.BitBoard;
+import com.checkers.models.engine.MoveCodec;
+import com.checkers.models.engine.MoveGenerator;
 import com.checkers.models.exceptions.InValidMove;
 import com.checkers.models.move.Jump;
 import com.checkers.models.move.Move;
+import com.checkers.models.move.Position;
+import com.checkers.models.piece.King;
+import com.checkers.models.piece.Pawn;
 import com.checkers.models.piece.Piece;
 import org.junit.Test;
 import org.junit.Before;
@@ -49,6 +55,19 @@ public class BoardTest {
     @Test
     public void findJumpTest(){}
 
+    @Test
+    public void generateMovesTest(){
+        long[] moves = new long[MoveGenerator.MAX_MOVES];
+        int count = board.generateMoves(moves);
+        List<Move> playerOneMoves = board.reachablePositionsByPlayer();
+
+        assertEquals(playerOneMoves.size(),count);
+        for (int i = 0; i < count; i++) {
+            assertEquals(playerOneMoves.get(i),MoveCodec.toMove(moves[i]));
+            assertEquals(moves[i],MoveCodec.fromMove(playerOneMoves.get(i)));
+        }
+    }
+
     @Test(expected = InValidMove.class)
     public void makeIllegalMoveTest() throws InValidMove {
         board.makeMove(null);
@@ -98,9 +117,214 @@ public class BoardTest {
 
     }
 
+    @Test
+    public void doMoveUndoMoveTest() throws InValidMove {
+        Board before = new Board(board);
+        long[] moves = new long[MoveGenerator.MAX_MOVES];
+        board.generateMoves(moves);
+
+        Board afterMakeMove = new Board(board);
+        afterMakeMove.makeMove(MoveCodec.toMove(moves[0]));
+
+        long undoInfo = board.doMove(moves[0]);
+        assertEquals(afterMakeMove,board);
+        assertEquals(Piece.PieceOwner.PLAYER2,board.getTurn());
+
+        board.undoMove(undoInfo);
+        assertEquals(before,board);
+        assertEquals(Piece.PieceOwner.PLAYER1,board.getTurn());
+    }
+
+    @Test
+    public void multiJumpUndoTest() {
+        board.clear();
+        board.setPiece(6,1,new Pawn(Piece.PieceOwner.PLAYER1));
+        board.setPiece(7,6,new King(Piece.PieceOwner.PLAYER1));
+        board.setPiece(5,2,new Pawn(Piece.PieceOwner.PLAYER2));
+        board.setPiece(3,4,new King(Piece.PieceOwner.PLAYER2));
+        board.setPiece(0,7,new Pawn(Piece.PieceOwner.PLAYER2));
+        board.setTurn(Piece.PieceOwner.PLAYER1);
+
+        long move = findMove(6,1,2,5); // over the pawn, then over the king
+        assertEquals(2,Integer.bitCount(MoveCodec.captured(move)));
+        assertRoundTrip(move);
+        assertEquals(1,board.getKingCount(Piece.PieceOwner.PLAYER2));
+    }
+
+    @Test
+    public void kingCapturedByPlayerTwoUndoTest() {
+        board.clear();
+        board.setPiece(2,1,new King(Piece.PieceOwner.PLAYER2));
+        board.setPiece(3,2,new King(Piece.PieceOwner.PLAYER1));
+        board.setPiece(5,4,new Pawn(Piece.PieceOwner.PLAYER1));
+        board.setPiece(7,0,new Pawn(Piece.PieceOwner.PLAYER1));
+        board.setTurn(Piece.PieceOwner.PLAYER2);
+
+        long move = findMove(2,1,6,5); // a king jumping the other way: the king, then the pawn
+        assertRoundTrip(move);
+        assertEquals(1,board.getKingCount(Piece.PieceOwner.PLAYER1));
+        assertEquals(2,board.getPawnCount(Piece.PieceOwner.PLAYER1));
+    }
+
+    @Test
+    public void promotionUndoTest() {
+        board.clear();
+        board.setPiece(1,2,new Pawn(Piece.PieceOwner.PLAYER1));
+        board.setPiece(5,0,new Pawn(Piece.PieceOwner.PLAYER2));
+        board.setTurn(Piece.PieceOwner.PLAYER1);
+        assertRoundTrip(findMove(1,2,0,3));
+
+        board.setTurn(Piece.PieceOwner.PLAYER2);
+        assertRoundTrip(findMove(5,0,6,1)); // a plain step of player 2
+        board.clear();
+        board.setPiece(6,3,new Pawn(Piece.PieceOwner.PLAYER2));
+        board.setPiece(3,0,new Pawn(Piece.PieceOwner.PLAYER1));
+        board.setTurn(Piece.PieceOwner.PLAYER2);
+        assertRoundTrip(findMove(6,3,7,4));
+    }
+
+    @Test
+    public void capturePromotionUndoTest() {
+        board.clear();
+        board.setPiece(2,1,new Pawn(Piece.PieceOwner.PLAYER1));
+        board.setPiece(1,2,new King(Piece.PieceOwner.PLAYER2));
+        board.setPiece(4,7,new Pawn(Piece.PieceOwner.PLAYER2));
+        board.setTurn(Piece.PieceOwner.PLAYER1);
+
+        long move = findMove(2,1,0,3); // takes a king and is crowned
+        assertRoundTrip(move);
+        assertEquals(0,board.getKingCount(Piece.PieceOwner.PLAYER1));
+        assertEquals(1,board.getKingCount(Piece.PieceOwner.PLAYER2));
+    }
+
+    /**
+     * Makes a move in place and takes it back. After the move the incremental state must match the position built
+     * from scratch, and after the undo everything must be as it was.
+     */
+    private void assertRoundTrip(long move) {
+        Board before = new Board(board);
+        long hash = board.hash();
+        int[] state = state(board);
+
+        long undoInfo = board.doMove(move);
+        assertNotEquals(hash,board.hash());
+        Board rebuilt = rebuild(board);
+        assertEquals(rebuilt.hash(),board.hash());
+        assertArrayEquals(state(rebuilt),state(board));
+
+        board.undoMove(undoInfo);
+        assertArrayEquals(state,state(board));
+        assertEquals(hash,board.hash());
+        assertEquals(before,board);
+    }
+
+    private long findMove(int fromRow, int fromColumn, int toRow, int toColumn) {
+        long[] moves = new long[MoveGenerator.MAX_MOVES];
+        int count = board.generateMoves(moves);
+        for (int i = 0; i < count; i++) {
+            if (MoveCodec.from(moves[i]) == BitBoard.square(fromRow,fromColumn)
+                    && MoveCodec.to(moves[i]) == BitBoard.square(toRow,toColumn))
+                return moves[i];
+        }
+        fail("no move from " + fromRow + "," + fromColumn + " to " + toRow + "," + toColumn);
+        return MoveCodec.NONE;
+    }
+
+    /**
+     * The masks, the turn and the counters of a position.
+     */
+    private static int[] state(Board b) {
+        int[] state = new int[15];
+        int i = 0;
+        for (Piece.PieceOwner owner : new Piece.PieceOwner[]{Piece.PieceOwner.PLAYER1, Piece.PieceOwner.PLAYER2}) {
+            state[i++] = b.getPawns(owner);
+            state[i++] = b.getKings(owner);
+            state[i++] = b.getPawnCount(owner);
+            state[i++] = b.getKingCount(owner);
+            state[i++] = b.getBackRowCount(owner);
+            state[i++] = b.getAdvancement(owner);
+            state[i++] = b.getCentralization(owner);
+        }
+        state[i] = b.getTurn().ordinal();
+        return state;
+    }
+
+    private static Board rebuild(Board b) {
+        Board rebuilt = new Board();
+        rebuilt.clear();
+        for (int r = 0; r < Board.BOARD_SIZE; r++) {
+            for (int c = 0; c < Board.BOARD_SIZE; c++) {
+                if (b.getPiece(r,c) != null)
+                    rebuilt.setPiece(r,c,b.getPiece(r,c));
+            }
+        }
+        rebuilt.setTurn(b.getTurn());
+        return rebuilt;
+    }
+
+    @Test
+    public void hashTest() throws InValidMove {
+        long initialHash = board.hash();
+        Move mv = board.reachablePositionsByPlayer(Piece.PieceOwner.PLAYER1).get(0);
+
+        board.makeMove(mv);
+        assertNotEquals(initialHash,board.hash());
+
+        board.undo();
+        assertEquals(initialHash,board.hash());
+
+        board.setTurn(Piece.PieceOwner.PLAYER2);
+        assertNotEquals(initialHash,board.hash()); // the side to move is part of the hash
+    }
+
+    @Test
+    public void countersTest() throws InValidMove {
+        assertEquals(12,board.getPawnCount(Piece.PieceOwner.PLAYER1));
+        assertEquals(0,board.getKingCount(Piece.PieceOwner.PLAYER1));
+        assertEquals(4,board.getBackRowCount(Piece.PieceOwner.PLAYER2));
+        int advancement = board.getAdvancement(Piece.PieceOwner.PLAYER1);
+        int centralization = board.getCentralization(Piece.PieceOwner.PLAYER1);
+
+        Move mv = board.reachablePositionsByPlayer().get(0);
+        board.makeMove(mv);
+        assertEquals(advancement+1,board.getAdvancement(Piece.PieceOwner.PLAYER1)); // a pawn moved one row forward
+        assertEquals(centralization+centerSteps(mv.getDestination())-centerSteps(mv.getOrigin()),
+                board.getCentralization(Piece.PieceOwner.PLAYER1));
+
+        board.undo();
+        assertEquals(advancement,board.getAdvancement(Piece.PieceOwner.PLAYER1));
+        assertEquals(centralization,board.getCentralization(Piece.PieceOwner.PLAYER1));
+    }
+
     @Test
     public void isGameOverTest(){
         assertNull(board.isGameOver());
     }
 
+    @Test
+    public void isGameOverAfterChangeTest() throws InValidMove {
+        assertNull(board.isGameOver());
+        assertTrue(board.hasMoves());
+
+        board.clear();
+        board.setPiece(4,3,new King(Piece.PieceOwner.PLAYER1));
+        board.setPiece(3,2,new Pawn(Piece.PieceOwner.PLAYER2));
+        assertNull(board.isGameOver()); // the old answer isn't kept once the position changes
+
+        board.makeMove(board.reachablePositionsByPlayer().get(0)); // the only move takes the last piece of player 2
+        assertFalse(board.hasMoves());
+        assertEquals(Piece.PieceOwner.PLAYER1,board.isGameOver());
+
+        board.undo();
+        assertTrue(board.hasMoves());
+        assertNull(board.isGameOver());
+
+        board.redo();
+        assertEquals(Piece.PieceOwner.PLAYER1,board.isGameOver());
+    }
+
+    private static int centerSteps(Position p) {
+        int last = Board.BOARD_SIZE - 1;
+        return Math.min(p.getRow(), last - p.getRow()) + Math.min(p.getColumn(), last - p.getColumn());
+    }
 }
@@ -0,0 +1,165 @@
+package com.checkers.models.book;
+
+import com.checkers.models.Board;
+import com.checkers.models.engine.MoveCodec;
+import com.checkers.models.engine.MoveGenerator;
+import com.checkers.models.piece.Piece;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class OpeningBookTest {
+
+    private static final int PLIES = 6;
+
+    Path file;
+    Board start = new Board();
+    long[] legal = new long[MoveGenerator.MAX_MOVES];
+
+    @Before
+    public void createFile() throws IOException {
+        file = Files.createTempFile("opening", ".book");
+    }
+
+    @After
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void everyPositionFoundTest() throws IOException {
+        OpeningBookBuilder builder = new OpeningBookBuilder(PLIES);
+        Map<Long, Set<Long>> played = new HashMap<>(); // the moves played from each position in the book
+        Random random = new Random(11);
+        for (int game = 0; game < 30; game++) {
+            Board board = new Board();
+            long[] moves = new long[PLIES + 4]; // the plies past the book are left out
+            for (int ply = 0; ply < moves.length; ply++) {
+                moves[ply] = legal[random.nextInt(board.generateMoves(legal))];
+                if (ply < PLIES)
+                    played.computeIfAbsent(board.hash(), hash -> new HashSet<>()).add(moves[ply]);
+                board.doMove(moves[ply]);
+            }
+            builder.addGame(moves, moves.length, (game % 3 == 0) ? null : board.getTurn());
+        }
+        int entries = builder.write(file, 1);
+        assertEquals(30, builder.getGames());
+        assertEquals(played.size(), builder.getPositions());
+        assertEquals(played.values().stream().mapToInt(Set::size).sum(), entries);
+
+        OpeningBook book = OpeningBook.open(file);
+        assertEquals(PLIES, book.getPlies());
+        assertEquals(entries, book.size());
+
+        // replay the games' positions: each has a book move, one of those played from it
+        random.setSeed(11);
+        Random picks = new Random(5);
+        for (int game = 0; game < 30; game++) {
+            Board board = new Board();
+            for (int ply = 0; ply < PLIES; ply++) {
+                long move = book.probe(board, picks);
+                assertTrue(played.get(board.hash()).contains(move));
+                board.doMove(legal[random.nextInt(board.generateMoves(legal))]);
+            }
+            for (int ply = PLIES; ply < PLIES + 4; ply++)
+                random.nextInt(board.generateMoves(legal));
+        }
+    }
+
+    @Test
+    public void offBookTest() throws IOException {
+        OpeningBookBuilder builder = new OpeningBookBuilder(PLIES);
+        int count = start.generateMoves(legal);
+        builder.addGame(new long[]{legal[0]}, 1, null);
+        builder.write(file, 1);
+        OpeningBook book = OpeningBook.open(file);
+
+        Board board = new Board();
+        assertEquals(legal[0], book.probe(board, new Random(1)));
+        board.doMove(legal[0]);
+        assertEquals(MoveCodec.NONE, book.probe(board, new Random(1))); // one ply past the book
+        Board other = new Board();
+        other.doMove(legal[count - 1]);
+        assertEquals(MoveCodec.NONE, book.probe(other, new Random(1)));
+    }
+
+    @Test
+    public void illegalMovesFilteredTest() throws IOException {
+        start.generateMoves(legal);
+        long illegal = MoveCodec.encode(0, 31, 0);
+
+        // the builder cuts a game short at its first illegal move
+        OpeningBookBuilder builder = new OpeningBookBuilder(PLIES);
+        builder.addGame(new long[]{legal[0], illegal, legal[1]}, 3, null);
+        assertEquals(1, builder.getPositions()); // the start position only
+        assertEquals(1, builder.write(file, 1));
+
+        // a move stored for the position, or for another one with the same hash, that is illegal here is never played
+        writeBook(new long[][]{{start.hash(), illegal, 50, 100}, {start.hash(), legal[2], 1, 0}});
+        OpeningBook book = OpeningBook.open(file);
+        Random random = new Random(2);
+        for (int i = 0; i < 100; i++)
+            assertEquals(legal[2], book.probe(start, random));
+
+        writeBook(new long[][]{{start.hash(), illegal, 50, 100}});
+        assertEquals(MoveCodec.NONE, OpeningBook.open(file).probe(start, random));
+    }
+
+    @Test
+    public void minGamesTest() throws IOException {
+        start.generateMoves(legal);
+        OpeningBookBuilder builder = new OpeningBookBuilder(PLIES);
+        builder.addGame(new long[]{legal[0]}, 1, null);
+        builder.addGame(new long[]{legal[0]}, 1, null);
+        builder.addGame(new long[]{legal[1]}, 1, null);
+        assertEquals(1, builder.write(file, 2));
+        Random random = new Random(3);
+        for (int i = 0; i < 20; i++)
+            assertEquals(legal[0], OpeningBook.open(file).probe(start, random));
+    }
+
+    @Test
+    public void weightingTest() throws IOException {
+        start.generateMoves(legal);
+        Piece.PieceOwner mover = start.getTurn();
+        Piece.PieceOwner opponent = (mover == Piece.PieceOwner.PLAYER1) ? Piece.PieceOwner.PLAYER2 : Piece.PieceOwner.PLAYER1;
+        OpeningBookBuilder builder = new OpeningBookBuilder(PLIES);
+        for (int i = 0; i < 3; i++)
+            builder.addGame(new long[]{legal[0]}, 1, mover); // 6 points: weight 7
+        builder.addGame(new long[]{legal[1]}, 1, opponent);  // 0 points: weight 1
+        builder.write(file, 1);
+        OpeningBook book = OpeningBook.open(file);
+
+        Random random = new Random(4);
+        int[] picked = new int[2];
+        int draws = 8000;
+        for (int i = 0; i < draws; i++) {
+            long move = book.probe(start, random);
+            picked[(move == legal[0]) ? 0 : 1]++;
+            assertTrue(move == legal[0] || move == legal[1]);
+        }
+        assertEquals(7.0 / 8, (double) picked[0] / draws, 0.02);
+    }
+
+    private void writeBook(long[][] entries) throws IOException {
+        Arrays.sort(entries, (a, b) -> (a[0] != b[0]) ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        ByteBuffer buffer = ByteBuffer.allocate(OpeningBook.HEADER + entries.length * OpeningBook.ENTRY);
+        buffer.putInt(OpeningBook.MAGIC).putInt(OpeningBook.VERSION).putInt(PLIES).putInt(entries.length);
+        for (long[] entry : entries)
+            buffer.putLong(entry[0]).putLong(entry[1]).putInt((int) entry[2]).putInt((int) entry[3]);
+        Files.write(file, buffer.array());
+    }
+}
@@ -0,0 +1,202 @@
+package com.checkers.models.endgame;
+
+import com.checkers.models.Board;
+import com.checkers.models.engine.BitBoard;
+import com.checkers.models.engine.MoveGenerator;
+import com.checkers.models.piece.King;
+import com.checkers.models.piece.Pawn;
+import com.checkers.models.piece.Piece;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class EndgameDatabaseTest {
+
+    private static final int MAX_PIECES = 3;
+    private static final int SEARCH_DEPTH = 5; // plies the exhaustive search looks ahead
+
+    static Path file;
+    static EndgameDatabase database;
+    static EndgameIndex index = new EndgameIndex(MAX_PIECES);
+
+    @BeforeClass
+    public static void generate() throws IOException {
+        file = Files.createTempFile("endgame", ".db");
+        EndgameGenerator.generate(MAX_PIECES, file);
+        database = EndgameDatabase.open(file);
+    }
+
+    @AfterClass
+    public static void delete() throws IOException {
+        database = null;
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void headerTest() {
+        assertEquals(MAX_PIECES, database.getMaxPieces());
+        assertTrue(database.covers(MAX_PIECES));
+        assertFalse(database.covers(MAX_PIECES + 1));
+    }
+
+    @Test
+    public void corruptFileTest() throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        Path corrupt = Files.createTempFile("corrupt", ".db");
+        try {
+            assertNull(EndgameDatabase.openIfValid(corrupt.resolveSibling(corrupt.getFileName() + ".missing")));
+            assertNull(EndgameDatabase.openIfValid(corrupt)); // empty
+
+            Files.write(corrupt, Arrays.copyOf(bytes, bytes.length / 2));
+            assertNull(EndgameDatabase.openIfValid(corrupt)); // truncated
+
+            byte[] badMagic = bytes.clone();
+            badMagic[0] ^= 1;
+            Files.write(corrupt, badMagic);
+            assertNull(EndgameDatabase.openIfValid(corrupt));
+
+            byte[] badPieces = bytes.clone();
+            badPieces[2 * Integer.BYTES + 3] = 99;
+            Files.write(corrupt, badPieces);
+            assertNull(EndgameDatabase.openIfValid(corrupt));
+            try {
+                EndgameDatabase.open(corrupt);
+                fail("a database of 99 pieces was opened");
+            } catch (IOException expected) {
+            }
+
+            Files.write(corrupt, bytes);
+            assertNotNull(EndgameDatabase.openIfValid(corrupt));
+        } finally {
+            Files.deleteIfExists(corrupt);
+        }
+    }
+
+    /**
+     * Compares sampled positions with a search of every line a few plies deep: a win or loss in d plies must be
+     * found by a search of d plies but not of d - 1, and a draw by none.
+     */
+    @Test
+    public void exhaustiveSearchTest() {
+        Random random = new Random(3);
+        int[] masks = new int[4];
+        long[] counts = new long[3];
+        int searched = 0; // wins and losses short enough to be found by the search
+        for (int i = 0; i < 400; i++) {
+            int signature = random.nextInt(index.signatureCount());
+            index.position(signature, Math.floorMod(random.nextLong(), index.placements(signature)), masks);
+            Board board = board(masks, random.nextBoolean() ? Piece.PieceOwner.PLAYER1 : Piece.PieceOwner.PLAYER2);
+
+            int value = database.probe(board);
+            assertNotEquals(EndgameDatabase.UNKNOWN, value);
+            int expected = EndgameDatabase.isWin(value) ? 1 : EndgameDatabase.isLoss(value) ? -1 : 0;
+            int distance = EndgameDatabase.distance(value);
+            if (expected != 0 && distance <= SEARCH_DEPTH) {
+                assertEquals(board.toString(), expected, search(board, distance));
+                searched++;
+            }
+            int shallower = (expected == 0) ? SEARCH_DEPTH : Math.min(distance - 1, SEARCH_DEPTH);
+            if (shallower >= 0)
+                assertEquals(board.toString(), 0, search(board, shallower));
+            counts[expected + 1]++;
+        }
+        assertTrue("no lost position sampled", counts[0] > 0);
+        assertTrue("no won position sampled", counts[2] > 0);
+        assertTrue("no short win or loss sampled", searched > 0);
+    }
+
+    /**
+     * Checks that every value follows from the values of the positions one move on.
+     */
+    @Test
+    public void consistencyTest() {
+        int[] masks = new int[4];
+        long[] moves = new long[MoveGenerator.MAX_MOVES];
+        for (int s = 0; s < index.signatureCount(); s++) {
+            for (long placement = 0; placement < index.placements(s); placement++) {
+                index.position(s, placement, masks);
+                for (Piece.PieceOwner turn : new Piece.PieceOwner[]{Piece.PieceOwner.PLAYER1, Piece.PieceOwner.PLAYER2}) {
+                    Board board = board(masks, turn);
+                    assertEquals(board.toString(), expected(board, moves), database.probe(board));
+                }
+            }
+        }
+    }
+
+    private static int expected(Board board, long[] moves) {
+        Piece.PieceOwner winner = board.isGameOver();
+        if (winner != null)
+            return (winner == board.getTurn()) ? EndgameDatabase.win(0) : EndgameDatabase.loss(0);
+        int count = board.generateMoves(moves);
+        int shortestWin = Integer.MAX_VALUE, longestLoss = -1;
+        boolean draw = false;
+        for (int i = 0; i < count; i++) {
+            long undo = board.doMove(moves[i]);
+            int value = value(board);
+            board.undoMove(undo);
+            if (EndgameDatabase.isLoss(value))
+                shortestWin = Math.min(shortestWin, EndgameDatabase.distance(value) + 1);
+            else if (EndgameDatabase.isWin(value))
+                longestLoss = Math.max(longestLoss, EndgameDatabase.distance(value) + 1);
+            else
+                draw = true;
+        }
+        if (shortestWin != Integer.MAX_VALUE)
+            return EndgameDatabase.win(shortestWin);
+        return draw ? EndgameDatabase.DRAW : EndgameDatabase.loss(longestLoss);
+    }
+
+    private static int value(Board board) {
+        Piece.PieceOwner winner = board.isGameOver();
+        if (winner != null)
+            return (winner == board.getTurn()) ? EndgameDatabase.win(0) : EndgameDatabase.loss(0);
+        return database.probe(board);
+    }
+
+    /**
+     * Returns 1 if the player to move can force a win within the given plies, -1 if they lose within them whatever
+     * they play, 0 otherwise.
+     */
+    private static int search(Board board, int depth) {
+        Piece.PieceOwner winner = board.isGameOver();
+        if (winner != null)
+            return (winner == board.getTurn()) ? 1 : -1;
+        if (depth == 0)
+            return 0;
+        long[] moves = new long[MoveGenerator.MAX_MOVES];
+        int count = board.generateMoves(moves);
+        boolean lost = true;
+        for (int i = 0; i < count; i++) {
+            long undo = board.doMove(moves[i]);
+            int result = -search(board, depth - 1);
+            board.undoMove(undo);
+            if (result == 1)
+                return 1;
+            if (result == 0)
+                lost = false;
+        }
+        return lost ? -1 : 0;
+    }
+
+    static Board board(int[] masks, Piece.PieceOwner turn) {
+        Board board = new Board();
+        board.clear();
+        for (int m = 0; m < masks.length; m++) {
+            Piece.PieceOwner owner = (m < 2) ? Piece.PieceOwner.PLAYER1 : Piece.PieceOwner.PLAYER2;
+            for (int pieces = masks[m]; pieces != 0; pieces &= pieces - 1) {
+                int square = Integer.numberOfTrailingZeros(pieces);
+                board.setPiece(BitBoard.row(square), BitBoard.column(square), (m % 2 == 0) ? new Pawn(owner) : new King(owner));
+            }
+        }
+        board.setTurn(turn);
+        return board;
+    }
+}
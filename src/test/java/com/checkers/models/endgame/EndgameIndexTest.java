@@ -0,0 +1,85 @@
+package com.checkers.models.endgame;
+
+import com.checkers.models.Board;
+import com.checkers.models.engine.BitBoard;
+import com.checkers.models.piece.Piece;
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class EndgameIndexTest {
+
+    private static final int ROW0 = BitBoard.rowMask(0);
+    private static final int ROW7 = BitBoard.rowMask(Board.BOARD_SIZE - 1);
+
+    @Test
+    public void placementRoundTripTest() {
+        EndgameIndex index = new EndgameIndex(3);
+        int[] masks = new int[4];
+        for (int s = 0; s < index.signatureCount(); s++) {
+            for (long placement = 0; placement < index.placements(s); placement++)
+                checkPlacement(index, s, placement, masks);
+        }
+    }
+
+    @Test
+    public void largePlacementRoundTripTest() {
+        // too many placements to go through them all: the first, the last and some in between
+        EndgameIndex index = new EndgameIndex(EndgameIndex.MAX_PIECES);
+        Random random = new Random(7);
+        int[] masks = new int[4];
+        for (int s = 0; s < index.signatureCount(); s++) {
+            long placements = index.placements(s);
+            checkPlacement(index, s, 0, masks);
+            checkPlacement(index, s, placements - 1, masks);
+            for (int i = 0; i < 50; i++)
+                checkPlacement(index, s, Math.floorMod(random.nextLong(), placements), masks);
+        }
+    }
+
+    private static void checkPlacement(EndgameIndex index, int signature, long placement, int[] masks) {
+        index.position(signature, placement, masks);
+        int p1Pawns = masks[0], p1Kings = masks[1], p2Pawns = masks[2], p2Kings = masks[3];
+        assertEquals(0, p1Pawns & p1Kings);
+        assertEquals(0, (p1Pawns | p1Kings) & (p2Pawns | p2Kings));
+        assertEquals(0, p2Pawns & p2Kings);
+        assertEquals(0, p1Pawns & ROW0); // pawns never stand on their crowning row
+        assertEquals(0, p2Pawns & ROW7);
+        assertEquals(signature, index.signature(p1Pawns, p1Kings, p2Pawns, p2Kings));
+        assertEquals(placement, index.placement(signature, p1Pawns, p1Kings, p2Pawns, p2Kings));
+    }
+
+    @Test
+    public void indexIsPerfectTest() {
+        for (int maxPieces = EndgameIndex.MIN_PIECES; maxPieces <= 3; maxPieces++) {
+            EndgameIndex index = new EndgameIndex(maxPieces);
+            BitSet seen = new BitSet();
+            int[] masks = new int[4];
+            for (int s = 0; s < index.signatureCount(); s++) {
+                for (long placement = 0; placement < index.placements(s); placement++) {
+                    index.position(s, placement, masks);
+                    for (Piece.PieceOwner turn : new Piece.PieceOwner[]{Piece.PieceOwner.PLAYER1, Piece.PieceOwner.PLAYER2}) {
+                        long i = index.index(masks[0], masks[1], masks[2], masks[3], turn);
+                        assertTrue(i >= 0 && i < index.size());
+                        assertFalse("index " + i + " used twice", seen.get((int) i));
+                        seen.set((int) i);
+                    }
+                }
+            }
+            assertEquals(index.size(), seen.cardinality());
+        }
+    }
+
+    @Test
+    public void outsideTheDatabaseTest() {
+        EndgameIndex index = new EndgameIndex(3);
+        int p1 = BitBoard.bit(BitBoard.square(5, 0)), p2 = BitBoard.bit(BitBoard.square(2, 1));
+        assertEquals(-1, index.index(p1, 0, 0, 0, Piece.PieceOwner.PLAYER1)); // player two has no piece
+        assertEquals(-1, index.index(p1, BitBoard.rowMask(3), p2, 0, Piece.PieceOwner.PLAYER1)); // too many pieces
+        assertEquals(-1, index.index(BitBoard.bit(BitBoard.square(0, 1)), 0, p2, 0, Piece.PieceOwner.PLAYER1)); // a pawn on its crowning row
+        assertTrue(index.index(p1, 0, p2, 0, Piece.PieceOwner.PLAYER1) >= 0);
+    }
+}
@@ -0,0 +1,66 @@
+package com.checkers.models.engine;
+
+import com.checkers.models.Board;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MoveOrderingTest {
+
+    // a king going round a block of pieces either way lands on the same square, having taken other pieces
+    static final long LEFT_JUMP = MoveCodec.encode(24, 8, BitBoard.bit(21) | BitBoard.bit(13));
+    static final long RIGHT_JUMP = MoveCodec.encode(24, 8, BitBoard.bit(20) | BitBoard.bit(12));
+    static final long SINGLE_JUMP = MoveCodec.encode(1, 9, BitBoard.bit(5));
+    static final long STEP = MoveCodec.encode(2, 6, 0);
+
+    MoveBuffer buffer = new MoveBuffer();
+    MoveOrdering ordering = new MoveOrdering();
+
+    @Before
+    public void setUp() {
+        // the buffer is only a place for the moves to be ordered: overwrite the generated ones
+        int count = buffer.generate(new Board(), 0);
+        long[] moves = buffer.moves(0);
+        for (int i = 0; i < count; i++)
+            moves[i] = MoveCodec.encode(i, i + 4, 0);
+        moves[0] = STEP;
+        moves[1] = SINGLE_JUMP;
+        moves[2] = LEFT_JUMP;
+        moves[3] = RIGHT_JUMP;
+    }
+
+    @Test
+    public void capturesFirstTest() {
+        ordering.order(buffer, 0, MoveCodec.NONE, null);
+        assertEquals(LEFT_JUMP, buffer.get(0, 0)); // the most pieces taken first, in generation order
+        assertEquals(RIGHT_JUMP, buffer.get(0, 1));
+        assertEquals(SINGLE_JUMP, buffer.get(0, 2));
+    }
+
+    @Test
+    public void hashMoveTest() {
+        // only the stored jump gets the bonus, not the other one between the same squares
+        ordering.order(buffer, 0, RIGHT_JUMP, null);
+        assertEquals(RIGHT_JUMP, buffer.get(0, 0));
+        assertEquals(LEFT_JUMP, buffer.get(0, 1));
+
+        ordering.order(buffer, 0, STEP, null);
+        assertEquals(STEP, buffer.get(0, 0));
+        assertEquals(RIGHT_JUMP, buffer.get(0, 1));
+        assertEquals(LEFT_JUMP, buffer.get(0, 2));
+    }
+
+    @Test
+    public void killersTest() {
+        long killer = buffer.get(0, 5);
+        ordering.cutoff(0, killer, 3);
+        ordering.order(buffer, 0, MoveCodec.NONE, null);
+        assertEquals(killer, buffer.get(0, 3)); // after the three captures
+
+        ordering.clear();
+        this.setUp();
+        ordering.order(buffer, 0, MoveCodec.NONE, null);
+        assertEquals(killer, buffer.get(0, 5)); // back among the quiet moves, in generation order
+    }
+}
@@ -0,0 +1,144 @@
+package com.checkers.models.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TimeManagerTest {
+
+    TimeManager time = new TimeManager();
+
+    @Test
+    public void moveTimeTest() {
+        time.setMoveTime(40);
+        time.start();
+        assertEquals(40, time.getSoftBudgetMillis());
+        assertEquals(40, time.getHardBudgetMillis());
+    }
+
+    @Test
+    public void gameTimeSplitTest() {
+        // 10 s left once the overhead is kept aside, 40 moves to go: a fortieth, and three times that at most
+        time.setGameTime(10_000 + TimeManager.OVERHEAD_MILLIS, 0, 0);
+        time.start();
+        assertEquals(250, time.getSoftBudgetMillis());
+        assertEquals(750, time.getHardBudgetMillis());
+
+        // late in the game at least ten moves are kept to go, and most of the increment is spent
+        time.setGameTime(1000 + TimeManager.OVERHEAD_MILLIS, 200, 35);
+        time.start();
+        assertEquals(100 + 150, time.getSoftBudgetMillis());
+        assertEquals(1000 / TimeManager.HARD_SHARE + 200, time.getHardBudgetMillis());
+
+        // the budgets never go past the time left
+        time.setGameTime(100 + TimeManager.OVERHEAD_MILLIS, 5000, 0);
+        time.start();
+        assertEquals(100, time.getHardBudgetMillis());
+        assertEquals(100, time.getSoftBudgetMillis());
+
+        time.setGameTime(TimeManager.OVERHEAD_MILLIS / 2, 0, 0);
+        time.start();
+        assertEquals(0, time.getHardBudgetMillis());
+    }
+
+    @Test
+    public void softAndHardBudgetTest() throws InterruptedException {
+        time.setGameTime(4000 + TimeManager.OVERHEAD_MILLIS, 0, 0); // soft 100 ms, hard 300 ms
+        time.start();
+        assertFalse(time.isSoftTimeUp());
+        assertFalse(time.isHardTimeUp());
+
+        sleepUntil(150);
+        assertTrue(time.isSoftTimeUp());
+        assertFalse(time.isHardTimeUp());
+        assertFalse(time.isStopped());
+
+        sleepUntil(350);
+        assertTrue(time.isHardTimeUp());
+        assertTrue(time.isStopped());
+        assertTrue(time.shouldStop());
+    }
+
+    @Test
+    public void checkIntervalTest() {
+        time.setMoveTime(0); // out of time from the start
+        time.start();
+        for (int i = 1; i < TimeManager.DEFAULT_CHECK_INTERVAL; i++)
+            assertFalse("the clock was read at call " + i, time.shouldStop());
+        assertTrue(time.shouldStop());
+        assertTrue(time.shouldStop()); // and stays stopped
+
+        TimeManager everyCall = new TimeManager(1);
+        everyCall.setMoveTime(0);
+        everyCall.start();
+        assertTrue(everyCall.shouldStop());
+    }
+
+    @Test
+    public void stopTest() {
+        time.setMoveTime(10_000);
+        time.start();
+        assertFalse(time.shouldStop());
+        time.stop();
+        assertTrue(time.shouldStop());
+        assertTrue(time.isStopped());
+        assertTrue(time.isSoftTimeUp());
+
+        time.start();
+        assertFalse(time.shouldStop());
+        assertFalse(time.isStopped());
+    }
+
+    @Test
+    public void stopFromAnotherThreadTest() throws InterruptedException {
+        time.setMoveTime(10_000);
+        time.start();
+        Thread stopper = new Thread(time::stop);
+        stopper.start();
+        stopper.join();
+        assertTrue(time.shouldStop());
+    }
+
+    @Test
+    public void ponderHitTest() throws InterruptedException {
+        time.setMoveTime(50);
+        time.startPondering();
+        sleepUntil(80);
+        for (int i = 0; i < 2 * TimeManager.DEFAULT_CHECK_INTERVAL; i++)
+            assertFalse(time.shouldStop()); // pondering has no budget
+        assertFalse(time.isSoftTimeUp());
+
+        // the budgets count from the start of pondering, so the move is already due
+        time.ponderHit();
+        assertEquals(50, time.getSoftBudgetMillis());
+        assertEquals(50, time.getHardBudgetMillis());
+        assertTrue(time.isSoftTimeUp());
+        assertTrue(time.isHardTimeUp());
+
+        time.setMoveTime(10_000);
+        time.startPondering();
+        assertFalse(time.isStopped());
+        time.ponderHit();
+        assertFalse(time.isSoftTimeUp());
+        assertFalse(time.shouldStop());
+        time.stop();
+        assertTrue(time.shouldStop());
+    }
+
+    @Test
+    public void stopPonderingTest() {
+        time.startPondering();
+        assertFalse(time.shouldStop());
+        time.stop();
+        assertTrue(time.shouldStop());
+    }
+
+    /**
+     * Sleeps until the given time has passed since the clock was started.
+     */
+    private void sleepUntil(long millis) throws InterruptedException {
+        long left = millis - time.elapsedNanos() / 1_000_000;
+        if (left > 0)
+            Thread.sleep(left + 1);
+    }
+}
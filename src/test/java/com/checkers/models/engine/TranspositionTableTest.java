@@ -0,0 +1,119 @@
+package com.checkers.models.engine;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TranspositionTableTest {
+
+    TranspositionTable table;
+    TranspositionTable.Entry entry = new TranspositionTable.Entry();
+    long sameBucket; // added to a hash, gives another hash of the same bucket
+
+    @Before
+    public void setUp() {
+        table = new TranspositionTable(1);
+        sameBucket = table.capacity() / 2; // the number of buckets, a power of two
+    }
+
+    @Test
+    public void storeProbeTest() {
+        long jump = MoveCodec.encode(9, 18, BitBoard.bit(13));
+        table.store(12345L, 7, -2.5, TranspositionTable.EXACT, jump);
+
+        assertTrue(table.probe(12345L, entry));
+        assertEquals(-2.5, entry.score, 0);
+        assertEquals(7, entry.depth);
+        assertEquals(TranspositionTable.EXACT, entry.bound);
+        assertEquals((int) (jump & 0x3FF), entry.move);
+        assertEquals(jump, entry.bestMove());
+
+        assertFalse(table.probe(54321L, entry));
+    }
+
+    @Test
+    public void boundsAndNoMoveTest() {
+        table.store(1L, 3, 1.0, TranspositionTable.LOWER, MoveCodec.NONE);
+        table.store(2L, 3, 1.0, TranspositionTable.UPPER, MoveCodec.encode(4, 8, 0));
+
+        assertTrue(table.probe(1L, entry));
+        assertEquals(TranspositionTable.LOWER, entry.bound);
+        assertEquals(-1, entry.move);
+        assertEquals(MoveCodec.NONE, entry.bestMove());
+
+        assertTrue(table.probe(2L, entry));
+        assertEquals(TranspositionTable.UPPER, entry.bound);
+        assertEquals(MoveCodec.encode(4, 8, 0), entry.bestMove());
+    }
+
+    @Test
+    public void jumpsBetweenTheSameSquaresTest() {
+        // a king can go round a block of pieces either way and land on the same square
+        long left = MoveCodec.encode(0, 16, BitBoard.bit(4) | BitBoard.bit(12));
+        long right = MoveCodec.encode(0, 16, BitBoard.bit(5) | BitBoard.bit(13));
+        table.store(1L, 1, 0, TranspositionTable.EXACT, left);
+        table.store(2L, 1, 0, TranspositionTable.EXACT, right);
+
+        assertTrue(table.probe(1L, entry));
+        assertEquals(left, entry.bestMove());
+        assertTrue(table.probe(2L, entry));
+        assertEquals(right, entry.bestMove());
+    }
+
+    @Test
+    public void replacementTest() {
+        long a = 77L, b = a + sameBucket, c = b + sameBucket, d = c + sameBucket;
+        table.store(a, 5, 1, TranspositionTable.EXACT, MoveCodec.NONE);
+        table.store(b, 3, 2, TranspositionTable.EXACT, MoveCodec.NONE); // shallower: goes to the second entry
+        assertTrue(table.probe(a, entry));
+        assertTrue(table.probe(b, entry));
+
+        table.store(c, 2, 3, TranspositionTable.EXACT, MoveCodec.NONE); // the second entry always takes the newest
+        assertTrue(table.probe(a, entry));
+        assertFalse(table.probe(b, entry));
+        assertTrue(table.probe(c, entry));
+
+        table.store(d, 6, 4, TranspositionTable.EXACT, MoveCodec.NONE); // deeper: replaces the first entry
+        assertFalse(table.probe(a, entry));
+        assertTrue(table.probe(d, entry));
+        assertEquals(6, entry.depth);
+
+        table.store(d, 1, 5, TranspositionTable.EXACT, MoveCodec.NONE); // the same position is always updated
+        assertTrue(table.probe(d, entry));
+        assertEquals(1, entry.depth);
+        assertEquals(5, entry.score, 0);
+    }
+
+    @Test
+    public void olderSearchReplacedTest() {
+        long a = 5L, b = a + sameBucket, c = b + sameBucket;
+        table.store(a, 9, 1, TranspositionTable.EXACT, MoveCodec.NONE);
+        table.newSearch();
+        table.store(b, 3, 2, TranspositionTable.EXACT, MoveCodec.NONE); // the deep entry is from an earlier search
+        table.store(c, 1, 3, TranspositionTable.EXACT, MoveCodec.NONE);
+        assertFalse(table.probe(a, entry));
+        assertTrue(table.probe(b, entry));
+        assertTrue(table.probe(c, entry));
+    }
+
+    @Test
+    public void checkWordTest() {
+        long a = 99L;
+        table.store(a, 4, 1, TranspositionTable.EXACT, MoveCodec.NONE);
+        assertFalse(table.probe(a + sameBucket, entry)); // same bucket, other position
+        assertFalse(table.probe(a ^ (1L << 40), entry)); // same index, other key
+        assertTrue(table.probe(a, entry));
+    }
+
+    @Test
+    public void clearTest() {
+        table.store(3L, 4, 1, TranspositionTable.EXACT, MoveCodec.NONE);
+        table.store(3L + sameBucket, 2, 1, TranspositionTable.EXACT, MoveCodec.NONE);
+        assertTrue(table.probe(3L, entry));
+
+        table.clear();
+        assertFalse(table.probe(3L, entry));
+        assertFalse(table.probe(3L + sameBucket, entry));
+    }
+}
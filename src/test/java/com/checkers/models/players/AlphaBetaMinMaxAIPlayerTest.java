@@ -0,0 +1,103 @@
+package com.checkers.models.players;
+
+import com.checkers.models.Board;
+import com.checkers.models.endgame.EndgameDatabase;
+import com.checkers.models.endgame.EndgameGenerator;
+import com.checkers.models.engine.BitBoard;
+import com.checkers.models.engine.MoveCodec;
+import com.checkers.models.piece.King;
+import com.checkers.models.piece.Pawn;
+import com.checkers.models.piece.Piece;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class AlphaBetaMinMaxAIPlayerTest {
+
+    private static final long BLOCK = MoveCodec.encode(BitBoard.square(6, 5), BitBoard.square(7, 6), 0);
+
+    static Path file;
+    static EndgameDatabase endgame;
+
+    Board board;
+    AlphaBetaMinMaxAIPlayer player;
+
+    @BeforeClass
+    public static void generateEndgame() throws Exception {
+        file = Files.createTempFile("endgame", ".db");
+        EndgameGenerator.generate(3, file);
+        endgame = EndgameDatabase.open(file);
+    }
+
+    @AfterClass
+    public static void deleteEndgame() throws Exception {
+        endgame = null;
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Player one's king can step in front of player two's last pawn, which then can't move: the game is won at
+     * once. The other moves keep a won endgame, but a longer one.
+     */
+    @Before
+    public void setUp() {
+        board = new Board();
+        board.clear();
+        board.setPiece(6, 7, new Pawn(Piece.PieceOwner.PLAYER2));
+        board.setPiece(6, 5, new King(Piece.PieceOwner.PLAYER1));
+        board.setPiece(1, 0, new King(Piece.PieceOwner.PLAYER1));
+        board.setTurn(Piece.PieceOwner.PLAYER1);
+        player = new AlphaBetaMinMaxAIPlayer("AlphaBeta", Piece.PieceOwner.PLAYER1, 4);
+        player.setSeed(1);
+    }
+
+    @Test
+    public void blockingWinTest() throws Exception {
+        assertEquals(BLOCK, MoveCodec.fromMove(player.makeMove(board)));
+    }
+
+    @Test
+    public void blockingWinWithEndgameTest() throws Exception {
+        // the database knows the position after the other moves is won
+        Board other = new Board(board);
+        other.doMove(MoveCodec.encode(BitBoard.square(6, 5), BitBoard.square(5, 4), 0));
+        assertTrue(EndgameDatabase.isLoss(endgame.probe(other)));
+
+        player.setEndgameDatabase(endgame);
+        assertEquals(BLOCK, MoveCodec.fromMove(player.makeMove(board)));
+    }
+
+    @Test
+    public void sameScaleTest() {
+        player.setEndgameDatabase(endgame);
+        Board blocked = new Board(board);
+        blocked.doMove(BLOCK);
+        assertEquals(AlphaBetaMinMaxAIPlayer.ENDGAME_WIN - 1, player.gameOverScore(blocked.isGameOver(), 1), 0);
+
+        Board other = new Board(board);
+        other.doMove(MoveCodec.encode(BitBoard.square(6, 5), BitBoard.square(5, 4), 0));
+        double known = player.probeEndgame(other, 1);
+        assertTrue(known > AlphaBetaMinMaxAIPlayer.WIN_BOUND);
+        assertTrue(known < AlphaBetaMinMaxAIPlayer.ENDGAME_WIN - 1);
+
+        // a loss is as bad wherever it is found
+        assertEquals(-(AlphaBetaMinMaxAIPlayer.ENDGAME_WIN - 3), player.gameOverScore(Piece.PieceOwner.PLAYER2, 3), 0);
+    }
+
+    @Test
+    public void tableScoreTest() {
+        double win = AlphaBetaMinMaxAIPlayer.ENDGAME_WIN - 7;
+        assertEquals(AlphaBetaMinMaxAIPlayer.ENDGAME_WIN - 4, AlphaBetaMinMaxAIPlayer.toTable(win, 3), 0);
+        assertEquals(win, AlphaBetaMinMaxAIPlayer.fromTable(AlphaBetaMinMaxAIPlayer.toTable(win, 3), 3), 0);
+        assertEquals(-win, AlphaBetaMinMaxAIPlayer.fromTable(AlphaBetaMinMaxAIPlayer.toTable(-win, 3), 3), 0);
+        assertEquals(1.5, AlphaBetaMinMaxAIPlayer.toTable(1.5, 3), 0);
+        // reached two plies later, the same win is two plies further from the root
+        assertEquals(win - 2, AlphaBetaMinMaxAIPlayer.fromTable(AlphaBetaMinMaxAIPlayer.toTable(win, 3), 5), 0);
+    }
+}
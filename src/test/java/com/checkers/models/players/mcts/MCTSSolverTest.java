@@ -0,0 +1,115 @@
+package com.checkers.models.players.mcts;
+
+import com.checkers.models.Board;
+import com.checkers.models.engine.BitBoard;
+import com.checkers.models.engine.MoveCodec;
+import com.checkers.models.engine.MoveGenerator;
+import com.checkers.models.move.Move;
+import com.checkers.models.piece.King;
+import com.checkers.models.piece.Pawn;
+import com.checkers.models.piece.Piece;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MCTSSolverTest {
+
+    private static final int PLAYOUT_LIMIT = 5000;
+
+    Board board;
+    NodeArena tree = new NodeArena(1 << 14);
+    MCTS mcts = new MCTS(1);
+
+    @Before
+    public void setUp() {
+        board = new Board();
+        board.clear();
+        board.setTurn(Piece.PieceOwner.PLAYER1);
+        mcts.setTimeLimit(10_000);
+        mcts.setPlayoutLimit(PLAYOUT_LIMIT);
+    }
+
+    /**
+     * Player one blocks the last pawn of player two: player two can't move and the game is over. Four other quiet
+     * moves don't win.
+     */
+    @Test
+    public void provenWinTest() {
+        board.setPiece(6, 1, new Pawn(Piece.PieceOwner.PLAYER2));
+        board.setPiece(7, 0, new Pawn(Piece.PieceOwner.PLAYER1));
+        board.setPiece(5, 2, new Pawn(Piece.PieceOwner.PLAYER1));
+        board.setPiece(6, 3, new King(Piece.PieceOwner.PLAYER1));
+        long win = MoveCodec.encode(BitBoard.square(6, 3), BitBoard.square(7, 2), 0);
+        assertEquals(5, board.generateMoves(new long[MoveGenerator.MAX_MOVES]));
+
+        tree.reset(board);
+        Move move = mcts.getBestMove(tree);
+
+        assertEquals(win, MoveCodec.fromMove(move));
+        // the root is lost for the player who moved to it, i.e. won by the player to move
+        assertEquals(NodeArena.PROVEN_LOSS, tree.proof(NodeArena.ROOT));
+        assertEquals(NodeArena.PROVEN_WIN, tree.proof(tree.findChild(NodeArena.ROOT, win)));
+        assertTrue("the search went on once the root was proven", mcts.getPlayouts() < PLAYOUT_LIMIT);
+    }
+
+    /**
+     * Player one's only piece, a king, must not step next to player two's pawn, which would capture it. The move
+     * is made to look the best by its statistics, and the search has to prove it lost.
+     */
+    @Test
+    public void provenLossAvoidedTest() {
+        board.setPiece(2, 1, new Pawn(Piece.PieceOwner.PLAYER2));
+        board.setPiece(4, 3, new King(Piece.PieceOwner.PLAYER1));
+        long loss = MoveCodec.encode(BitBoard.square(4, 3), BitBoard.square(3, 2), 0);
+
+        tree.reset(board);
+        long[] buffer = new long[MoveGenerator.MAX_MOVES];
+        tree.expand(NodeArena.ROOT, board, buffer);
+        int children = 0;
+        while (tree.tryChild(NodeArena.ROOT) != NodeArena.NONE)
+            children++;
+        assertEquals(4, children);
+        int losing = tree.findChild(NodeArena.ROOT, loss);
+        assertNotEquals(NodeArena.NONE, losing);
+        tree.update(losing, 1000, 1000);
+        tree.update(NodeArena.ROOT, 1000, 0);
+
+        Move move = mcts.getBestMove(tree);
+
+        assertEquals(NodeArena.PROVEN_LOSS, tree.proof(losing));
+        assertNotNull(move);
+        assertNotEquals(loss, MoveCodec.fromMove(move));
+    }
+
+    @Test
+    public void lostChildNotPickedFirstTest() {
+        tree.reset(new Board());
+        tree.expand(NodeArena.ROOT, tree.rootBoard(), new long[MoveGenerator.MAX_MOVES]);
+        int unvisited = tree.tryChild(NodeArena.ROOT);
+        int lost = tree.tryChild(NodeArena.ROOT);
+        assertEquals(lost, tree.firstChild(NodeArena.ROOT)); // the newest child comes first
+        tree.update(lost, 10, 10);
+        tree.setProof(lost, NodeArena.PROVEN_LOSS);
+
+        assertEquals(tree.move(unvisited), MoveCodec.fromMove(mcts.bestMove(tree)));
+
+        // with every child lost, a move the tree has no child for yet comes first
+        tree.setProof(unvisited, NodeArena.PROVEN_LOSS);
+        Move move = mcts.bestMove(tree);
+        assertNotEquals(tree.move(lost), MoveCodec.fromMove(move));
+        assertNotEquals(tree.move(unvisited), MoveCodec.fromMove(move));
+    }
+
+    @Test
+    public void everyMoveLostTest() {
+        tree.reset(new Board());
+        tree.expand(NodeArena.ROOT, tree.rootBoard(), new long[MoveGenerator.MAX_MOVES]);
+        for (int child = tree.tryChild(NodeArena.ROOT); child != NodeArena.NONE; child = tree.tryChild(NodeArena.ROOT))
+            tree.setProof(child, NodeArena.PROVEN_LOSS);
+
+        Move move = mcts.bestMove(tree); // nothing better left: a lost move rather than none
+        assertNotNull(move);
+        assertNotEquals(NodeArena.NONE, tree.findChild(NodeArena.ROOT, MoveCodec.fromMove(move)));
+    }
+}